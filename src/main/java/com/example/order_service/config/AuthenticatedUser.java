@@ -0,0 +1,7 @@
+package com.example.order_service.config;
+
+// User data of the request token, parsed once per request by JwtAuthenticationFilter
+public record AuthenticatedUser(Long id, String email, String role) {
+
+    public static final String REQUEST_ATTRIBUTE = AuthenticatedUser.class.getName();
+}
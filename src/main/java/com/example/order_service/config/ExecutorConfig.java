@@ -0,0 +1,83 @@
+package com.example.order_service.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class ExecutorConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExecutorConfig.class);
+
+    // Executor used to call product-service concurrently.
+    // With spring.threads.virtual.enabled=true on Java 21+ every call runs on its own virtual thread (as Tomcat requests do),
+    // otherwise it's a bounded pool of platform threads
+    @Bean
+    public AsyncTaskExecutor productServiceExecutor(Environment environment,
+                                                    @Value("${order.pipeline.pool-size}") int poolSize,
+                                                    @Value("${order.pipeline.queue-capacity}") int queueCapacity) {
+
+        if (Threading.VIRTUAL.isActive(environment)) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("product-service-");
+            executor.setVirtualThreads(true);
+            return executor;
+        }
+
+        // The project targets Java 17, where the switch is ignored (by Tomcat too) without any notice
+        if (environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false)) {
+            logger.warn("spring.threads.virtual.enabled=true needs Java 21+, running on Java {}. Requests and product-service calls " +
+                    "use platform threads, product-service calls a pool of {} threads", Runtime.version().feature(), poolSize);
+        }
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("product-service-");
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        // When the pool is saturated the calling thread makes the request itself instead of failing
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        return executor;
+    }
+
+    // Runs the /details calls merged by ProductDetailsCoalescer. It's separate from productServiceExecutor because the callers
+    // waiting on a merged call can be productServiceExecutor threads themselves (the parallel chunks)
+    @Bean
+    public ThreadPoolTaskExecutor productDetailsCoalescingExecutor(@Value("${product-service.details.coalescing.pool-size}") int poolSize,
+                                                                   @Value("${product-service.details.coalescing.queue-capacity}") int queueCapacity) {
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("product-details-coalescing-");
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        return executor;
+    }
+
+    // Workers that reserve the stock of the orders accepted asynchronously.
+    // The queue is bounded so a spike waits here instead of on Tomcat threads, when it's full new orders are rejected
+    @Bean
+    public ThreadPoolTaskExecutor orderProcessingExecutor(@Value("${order.async.pool-size}") int poolSize,
+                                                          @Value("${order.async.queue-capacity}") int queueCapacity) {
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("order-processing-");
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        // Accepted orders already queued are finished before shutting down
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.order_service.config;
+
+import io.jsonwebtoken.JwtException;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+// Parses the token once per request and stores the user as a request attribute for TokenDataServiceImpl
+@Component
+public class JwtAuthenticationFilter extends OncePerRequestFilter {
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        String header = request.getHeader("Authorization");
+
+        if (header != null && header.startsWith("Bearer ")) {
+            try {
+                request.setAttribute(AuthenticatedUser.REQUEST_ATTRIBUTE, jwtUtils.extractAuthenticatedUser(header.substring(7)));
+
+            } catch (JwtException | IllegalArgumentException e) {
+                // Invalid tokens are left to the controllers, which already answer them
+            }
+        }
+
+        filterChain.doFilter(request, response);
+    }
+}
@@ -1,6 +1,10 @@
 package com.example.order_service.config;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
@@ -8,18 +12,37 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
+import java.util.HexFormat;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class JwtUtils {
 
     private final SecretKey secretKey;
 
+    // The parser is thread safe, so it's built once instead of on every token
+    private final JwtParser jwtParser;
+
+    // Verified claims by token hash, each entry expires with its token. Null when the cache is disabled
+    private final Cache<String, Claims> claimsCache;
+
     @Value("${jwt.expiration}")
     private long expiration;
 
-    public JwtUtils(@Value("${jwt.secret}") String secret) {
+    public JwtUtils(@Value("${jwt.secret}") String secret,
+                    @Value("${jwt.claims-cache.enabled}") boolean claimsCacheEnabled,
+                    @Value("${jwt.claims-cache.max-size}") long claimsCacheMaxSize) {
         this.secretKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secret));
+        this.jwtParser = Jwts.parser()
+                .verifyWith(secretKey)
+                .build();
+        this.claimsCache = claimsCacheEnabled
+                ? Caffeine.newBuilder().maximumSize(claimsCacheMaxSize).expireAfter(new TokenExpiry()).build()
+                : null;
     }
 
     public String generateToken(String username) {
@@ -43,20 +66,60 @@ public class JwtUtils {
         return parseClaims(token).get("role", String.class); // Extracts the user role
     }
 
+    // Extracts all the user data with a single parse
+    public AuthenticatedUser extractAuthenticatedUser(String token) {
+        Claims claims = parseClaims(token);
+        String id = claims.get("id", String.class);
+        return new AuthenticatedUser(id == null ? null : Long.valueOf(id), claims.getSubject(), claims.get("role", String.class));
+    }
+
     public boolean validateToken(String token) {
         final String tokenUsername = extractUsername(token);
         return (!isTokenExpired(token));
     }
 
     public Claims parseClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(secretKey)
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+        if (claimsCache == null) {
+            return jwtParser.parseSignedClaims(token).getPayload();
+        }
+        // Only tokens with a valid signature get cached, invalid ones throw every time
+        return claimsCache.get(hash(token), key -> jwtParser.parseSignedClaims(token).getPayload());
     }
 
     private boolean isTokenExpired(String token) {
         return parseClaims(token).getExpiration().before(new Date());
     }
+
+    // The cache is keyed by the token hash so raw tokens aren't kept in memory
+    private static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    // Removes the cached claims when the token expires
+    private static class TokenExpiry implements Expiry<String, Claims> {
+
+        @Override
+        public long expireAfterCreate(String key, Claims claims, long currentTime) {
+            if (claims.getExpiration() == null) {
+                return Long.MAX_VALUE;
+            }
+            long millisLeft = claims.getExpiration().getTime() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(millisLeft, 0));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Claims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        @Override
+        public long expireAfterRead(String key, Claims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
 }
@@ -0,0 +1,83 @@
+package com.example.order_service.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+// Times the stages of the order pipeline, every timer is tagged with the outcome (success or error) and the exception name
+@Component
+public class PipelineMetrics {
+
+    public static final String ORDER_CREATE = "order.create";
+    public static final String ORDER_CREATE_STAGE = "order.create.stage";
+    public static final String PRODUCT_DETAILS = "product.details";
+    public static final String RABBITMQ_SEND = "rabbitmq.send";
+    public static final String RABBITMQ_PUBLISH = "rabbitmq.publish";
+
+    private final MeterRegistry meterRegistry;
+
+    public PipelineMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @FunctionalInterface
+    public interface TimedCall<T, E extends Exception> {
+        T call() throws E;
+    }
+
+    @FunctionalInterface
+    public interface TimedRun<E extends Exception> {
+        void run() throws E;
+    }
+
+    // Records the time of the call under the timer name, extra tags are sent as key value pairs
+    public <T, E extends Exception> T time(String name, TimedCall<T, E> call, String... tags) throws E {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            T result = call.call();
+            sample.stop(timer(name, "success", "none", tags));
+            return result;
+
+        } catch (Exception e) {
+            sample.stop(timer(name, "error", e.getClass().getSimpleName(), tags));
+            throw e;
+
+        }
+    }
+
+    public <E extends Exception> void time(String name, TimedRun<E> run, String... tags) throws E {
+        time(name, () -> {
+            run.run();
+            return null;
+        }, tags);
+    }
+
+    public void increment(String name, String... tags) {
+        increment(name, 1, tags);
+    }
+
+    public void increment(String name, double amount, String... tags) {
+        Counter.builder(name)
+                .tags(tags)
+                .register(meterRegistry)
+                .increment(amount);
+    }
+
+    public void record(String name, double amount, String... tags) {
+        DistributionSummary.builder(name)
+                .tags(tags)
+                .register(meterRegistry)
+                .record(amount);
+    }
+
+    private Timer timer(String name, String outcome, String exception, String... tags) {
+        return Timer.builder(name)
+                .tags(tags)
+                .tag("outcome", outcome)
+                .tag("exception", exception)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+}
@@ -2,6 +2,7 @@ package com.example.order_service.config;
 
 import org.springframework.amqp.core.*;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -12,6 +13,10 @@ public class RabbitMQConfig {
     private static final String ROLLBACK_EXCHANGE = "rollbackExchange";
     private static final String ROLLBACK_ROUTING_KEY = "rollback.stock";
 
+    // Only declared with rabbitmq.stock-compensation.order-event.enabled=true, product-service has to consume it first
+    private static final String ROLLBACK_ORDER_QUEUE = "rollbackOrderStockQueue";
+    private static final String ROLLBACK_ORDER_ROUTING_KEY = "rollback.stock.order";
+
     private static final String EMAIL_QUEUE = "orderEmailQueue";
     private static final String EMAIL_EXCHANGE = "orderEmailExchange";
     private static final String EMAIL_ROUTING_KEY = "order.email";
@@ -36,6 +41,18 @@ public class RabbitMQConfig {
         return BindingBuilder.bind(rollbackQueue).to(rollbackExchange).with(ROLLBACK_ROUTING_KEY);
     }
 
+    @Bean
+    @ConditionalOnProperty(name = "rabbitmq.stock-compensation.order-event.enabled", havingValue = "true")
+    public Queue rollbackOrderQueue() {
+        return new Queue(ROLLBACK_ORDER_QUEUE, false);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "rabbitmq.stock-compensation.order-event.enabled", havingValue = "true")
+    public Binding rollbackOrderBinding(Queue rollbackOrderQueue, TopicExchange rollbackExchange) {
+        return BindingBuilder.bind(rollbackOrderQueue).to(rollbackExchange).with(ROLLBACK_ORDER_ROUTING_KEY);
+    }
+
     @Bean
     public Queue emailQueue() {
         return new Queue(EMAIL_QUEUE, false);
@@ -1,35 +1,56 @@
 package com.example.order_service.controllers;
 
+import com.example.order_service.dtos.BulkOrderResultDTO;
+import com.example.order_service.dtos.IdempotentResponse;
 import com.example.order_service.dtos.NewOrder;
 import com.example.order_service.dtos.OrderDTO;
+import com.example.order_service.dtos.OrderStatusDTO;
+import com.example.order_service.dtos.PageDTO;
 import com.example.order_service.dtos.UpdateOrder;
 import com.example.order_service.dtos.UserOrderDTO;
 import com.example.order_service.exceptions.*;
-import com.example.order_service.models.OrderEntity;
+import com.example.order_service.services.Order.OrderCreationService;
+import com.example.order_service.services.Order.OrderExportService;
 import com.example.order_service.services.Order.OrderService;
 import com.example.order_service.services.TokenDataServiceImpl;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.net.URI;
 import java.util.List;
-import java.util.stream.Collectors;
 
+// Servlet stack only, the reactive profile serves the same routes with ReactiveOrderController
 @RestController
 @RequestMapping("/api/order")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class OrderController {
 
     @Autowired
     private OrderService orderService;
 
+    @Autowired
+    private OrderExportService orderExportService;
+
     @Autowired
     private TokenDataServiceImpl tokenDataService;
 
+    @Autowired
+    private OrderCreationService orderCreationService;
+
+    @Value("${order.async.enabled}")
+    private boolean asyncOrders;
+
     @GetMapping("/")
     public ResponseEntity<String> invalidPath() {
         return ResponseEntity.badRequest().body("The url provided is invalid.");
@@ -64,12 +85,15 @@ public class OrderController {
     }
 
     @GetMapping("/orders")
-    @Operation(summary = "Gets all orders data in the db", description = "Returns all the orders in the db.")
+    @Operation(summary = "Gets a page of the orders in the db", description = "Returns the orders in the db by page number, or after the order id sent as cursor, with a max page size of 200.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Data successfully received."),
             @ApiResponse(responseCode = "400", description = "Bad request, invalid id.")
     })
-    public ResponseEntity<?> getAllOrders(HttpServletRequest request) {
+    public ResponseEntity<?> getAllOrders(@RequestParam(required = false) Long after,
+                                          @RequestParam(required = false) Integer page,
+                                          @RequestParam(required = false) Integer size,
+                                          HttpServletRequest request) {
         try {
 
             String authenticatedUserRole = tokenDataService.getRole(request);
@@ -78,11 +102,8 @@ public class OrderController {
                 return new ResponseEntity<>("Forbidden: You cannot access this data.", HttpStatus.FORBIDDEN);
             }
 
-            List<OrderEntity> orders = orderService.getAllOrders();
-            List<OrderDTO> orderDTOs = orders.stream()
-                    .map(OrderDTO::new)
-                    .collect(Collectors.toList());
-            return ResponseEntity.ok(orderDTOs);
+            PageDTO<OrderDTO> orders = orderService.getAllOrders(after, page, size);
+            return ResponseEntity.ok(orders);
 
         } catch (NoOrdersFoundException e) {
             return new ResponseEntity<>(e.getMessage(), HttpStatus.NOT_FOUND);
@@ -93,22 +114,59 @@ public class OrderController {
     }
 
 
+    @GetMapping(value = "/orders/export", produces = "application/x-ndjson")
+    @Operation(summary = "Exports all the orders in the db", description = "Streams every order in the db as one json per line (NDJSON) while it's being read.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Data successfully exported."),
+            @ApiResponse(responseCode = "403", description = "Unauthorized to access this data.")
+    })
+    public void exportOrders(HttpServletRequest request, HttpServletResponse response) throws IOException {
+
+        try {
+
+            String authenticatedUserRole = tokenDataService.getRole(request);
+
+            if (!authenticatedUserRole.equals("ADMIN")) {
+                response.setStatus(HttpStatus.FORBIDDEN.value());
+                response.getWriter().write("Forbidden: You cannot access this data.");
+                return;
+            }
+
+            response.setContentType("application/x-ndjson");
+            orderExportService.exportOrders(response.getOutputStream());
+
+        } catch (Exception e) {
+            // Once the first orders are written the status can't be changed anymore
+            if (!response.isCommitted()) {
+                response.resetBuffer();
+                response.setStatus(HttpStatus.INTERNAL_SERVER_ERROR.value());
+                response.setContentType("text/plain");
+                response.getWriter().write("An error occurred while exporting the orders, try again later.");
+            }
+        }
+    }
+
+
     @GetMapping("/orders/user/{userId}")
-    @Operation(summary = "Gets all the orders of an user with the id", description = "Returns all the orders of the specified user with data.")
+    @Operation(summary = "Gets the orders of an user with the id", description = "Returns a page of the orders of the specified user with data, by page number or after the order id sent as cursor.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Data successfully received."),
             @ApiResponse(responseCode = "400", description = "Bad request, invalid id."),
             @ApiResponse(responseCode = "404", description = "No orders found."),
             @ApiResponse(responseCode = "500", description = "Internal server error.")
     })
-    public ResponseEntity<?> getAllUserOrders(@PathVariable Long userId, HttpServletRequest request) throws Exception {
+    public ResponseEntity<?> getAllUserOrders(@PathVariable Long userId,
+                                              @RequestParam(required = false) Long after,
+                                              @RequestParam(required = false) Integer page,
+                                              @RequestParam(required = false) Integer size,
+                                              HttpServletRequest request) throws Exception {
 
         try {
             String authenticatedUserRole = tokenDataService.getRole(request);
             String authenticatedUserEmail = tokenDataService.getEmail(request);
 
             if (authenticatedUserRole.equals("ADMIN")) {
-                List<UserOrderDTO> orders = orderService.getAllUserOrders(userId, authenticatedUserEmail);
+                PageDTO<UserOrderDTO> orders = orderService.getAllUserOrders(userId, authenticatedUserEmail, after, page, size);
                 return ResponseEntity.ok(orders);
 
             } else throw new NoAccesGrantedException("Forbidden: You cannot access another user's data.");
@@ -129,20 +187,23 @@ public class OrderController {
 
 
     @GetMapping("/orders/user")
-    @Operation(summary = "Gets all the orders of an user with the id", description = "Returns all the orders of the specified user with data.")
+    @Operation(summary = "Gets the orders of the logged user", description = "Returns a page of the orders of the logged user with data, by page number or after the order id sent as cursor.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Data successfully received."),
             @ApiResponse(responseCode = "400", description = "Bad request, invalid id."),
             @ApiResponse(responseCode = "404", description = "No orders found."),
             @ApiResponse(responseCode = "500", description = "Internal server error.")
     })
-    public ResponseEntity<?> getAllUserLoggedOrders(HttpServletRequest request) throws Exception {
+    public ResponseEntity<?> getAllUserLoggedOrders(@RequestParam(required = false) Long after,
+                                                    @RequestParam(required = false) Integer page,
+                                                    @RequestParam(required = false) Integer size,
+                                                    HttpServletRequest request) throws Exception {
 
         try {
             Long authenticatedUserId = tokenDataService.getId(request);
             String authenticatedUserEmail = tokenDataService.getEmail(request);
 
-            List<UserOrderDTO> orders = orderService.getAllUserOrders(authenticatedUserId, authenticatedUserEmail);
+            PageDTO<UserOrderDTO> orders = orderService.getAllUserOrders(authenticatedUserId, authenticatedUserEmail, after, page, size);
             return ResponseEntity.ok(orders);
 
         } catch (NoOrdersFoundException e) {
@@ -161,28 +222,119 @@ public class OrderController {
     @Operation(summary = "Creates a new order", description = "Receives a user id, status, a list of items and creates a new order.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "201", description = "Order successfully created."),
+            @ApiResponse(responseCode = "202", description = "Order accepted, its status is polled at the Location header url."),
             @ApiResponse(responseCode = "403", description = "Unauthorized to create an order for another user."),
-            @ApiResponse(responseCode = "409", description = "Bad request, invalid data.")
+            @ApiResponse(responseCode = "409", description = "Bad request, invalid data, or a request with the same Idempotency-Key is still being processed."),
+            @ApiResponse(responseCode = "422", description = "The Idempotency-Key was already used with a different order."),
+            @ApiResponse(responseCode = "503", description = "Product service unavailable or too many orders being processed, try again later.")
     })
-    public ResponseEntity<?> createNewOrder(@RequestBody NewOrder newOrder, HttpServletRequest request) throws Exception {
+    public ResponseEntity<?> createNewOrder(@RequestBody NewOrder newOrder,
+                                            @RequestHeader(value = "Prefer", required = false) String prefer,
+                                            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+                                            HttpServletRequest request) throws Exception {
 
         try {
 
             String authenticatedUserEmail = tokenDataService.getEmail(request);
             Long authenticatedUserId = tokenDataService.getId(request);
+            boolean async = asyncOrders || "respond-async".equalsIgnoreCase(prefer);
+
+            IdempotentResponse response = orderCreationService.createOrder(newOrder, async, authenticatedUserEmail, authenticatedUserId, idempotencyKey);
+
+            ResponseEntity.BodyBuilder builder = ResponseEntity.status(response.statusCode())
+                    .contentType(MediaType.parseMediaType(response.contentType()));
+
+            if (response.location() != null) {
+                builder.location(URI.create(response.location()));
+            }
+            if (response.replayed()) {
+                builder.header("Idempotent-Replayed", "true");
+            }
 
-            orderService.createNewOrder(newOrder, authenticatedUserEmail, authenticatedUserId);
-            return new ResponseEntity<>("Order crated succesfully", HttpStatus.CREATED);
+            return builder.body(response.body());
 
         } catch (UserIdNullException | NoOrdersFoundException | StockException | StatusException e) {
             return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
 
+        } catch (IdempotencyKeyInProgressException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).header("Retry-After", "1").body(e.getMessage());
+
+        } catch (IdempotencyKeyException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.UNPROCESSABLE_ENTITY);
+
+        } catch (ProductServiceUnavailableException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.SERVICE_UNAVAILABLE);
+
+        } catch (OrderQueueFullException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header("Retry-After", "1").body(e.getMessage());
+
         } catch (Exception e) {
             return new ResponseEntity<>("An error occurred while creating the order, try again later.", HttpStatus.INTERNAL_SERVER_ERROR);
 
         }
     }
 
+    @PostMapping("/orders/bulk")
+    @Operation(summary = "Creates several orders at once", description = "Receives a list of orders and creates them with one product-service call for the details and one for the stock, returns the result of every order in the same position.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Orders processed, rejected orders have the reason in the message."),
+            @ApiResponse(responseCode = "400", description = "Bad request, invalid data."),
+            @ApiResponse(responseCode = "503", description = "Product service unavailable, try again later.")
+    })
+    public ResponseEntity<?> createNewOrders(@RequestBody List<NewOrder> newOrders, HttpServletRequest request) {
+
+        try {
+
+            String authenticatedUserEmail = tokenDataService.getEmail(request);
+            Long authenticatedUserId = tokenDataService.getId(request);
+
+            List<BulkOrderResultDTO> results = orderService.createNewOrders(newOrders, authenticatedUserEmail, authenticatedUserId);
+            return ResponseEntity.ok(results);
+
+        } catch (NoOrdersFoundException | StatusException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+
+        } catch (ProductServiceUnavailableException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.SERVICE_UNAVAILABLE);
+
+        } catch (Exception e) {
+            return new ResponseEntity<>("An error occurred while creating the orders, try again later.", HttpStatus.INTERNAL_SERVER_ERROR);
+
+        }
+    }
+
+
+    @GetMapping("/orders/{id}/status")
+    @Operation(summary = "Gets the status of an order", description = "Returns the status of an order created asynchronously, the reason is sent when it was rejected.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Data successfully received."),
+            @ApiResponse(responseCode = "403", description = "Unauthorized to access this order."),
+            @ApiResponse(responseCode = "404", description = "Order not found.")
+    })
+    public ResponseEntity<?> getOrderStatus(@PathVariable Long id, HttpServletRequest request) {
+
+        try {
+
+            String authenticatedUserRole = tokenDataService.getRole(request);
+            Long authenticatedUserId = tokenDataService.getId(request);
+
+            OrderStatusDTO orderStatus = orderService.getOrderStatus(id);
+
+            if (!authenticatedUserRole.equals("ADMIN") && !orderStatus.userId().equals(authenticatedUserId)) {
+                return new ResponseEntity<>("Forbidden: You cannot access this data.", HttpStatus.FORBIDDEN);
+            }
+
+            return ResponseEntity.ok(orderStatus);
+
+        } catch (NoOrdersFoundException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.NOT_FOUND);
+
+        } catch (Exception e) {
+            return new ResponseEntity<>("An error occurred while searching the order status, try again later.", HttpStatus.INTERNAL_SERVER_ERROR);
+
+        }
+    }
+
 
     @PutMapping("orders/{id}")
     @Operation(summary = "Updates an order", description = "Receives an id and updates the assigned order, you can update all the data or independently if you leave one blank it will retrieve the old value.")
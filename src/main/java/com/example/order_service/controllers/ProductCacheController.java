@@ -0,0 +1,97 @@
+package com.example.order_service.controllers;
+
+import com.example.order_service.dtos.ProductCacheStatsDTO;
+import com.example.order_service.services.Product.ProductService;
+import com.example.order_service.services.TokenDataServiceImpl;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/order/cache/products")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class ProductCacheController {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private TokenDataServiceImpl tokenDataService;
+
+    @GetMapping("/stats")
+    @Operation(summary = "Gets the product cache statistics", description = "Returns the size, hits, misses and evictions of the product details cache.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Data successfully received."),
+            @ApiResponse(responseCode = "403", description = "Unauthorized to access this data.")
+    })
+    public ResponseEntity<?> getCacheStats(HttpServletRequest request) {
+        try {
+
+            String authenticatedUserRole = tokenDataService.getRole(request);
+
+            if (!authenticatedUserRole.equals("ADMIN")) {
+                return new ResponseEntity<>("Forbidden: You cannot access this data.", HttpStatus.FORBIDDEN);
+            }
+
+            ProductCacheStatsDTO stats = productService.getCacheStats();
+            return ResponseEntity.ok(stats);
+
+        } catch (Exception e) {
+            return new ResponseEntity<>("An error occurred while fetching the cache stats, try again later.", HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+
+    @DeleteMapping("/{productId}")
+    @Operation(summary = "Invalidates a cached product", description = "Removes the specified product from the product details cache.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Product successfully invalidated."),
+            @ApiResponse(responseCode = "403", description = "Unauthorized to invalidate the cache.")
+    })
+    public ResponseEntity<?> invalidateCachedProduct(@PathVariable Long productId, HttpServletRequest request) {
+        try {
+
+            String authenticatedUserRole = tokenDataService.getRole(request);
+
+            if (!authenticatedUserRole.equals("ADMIN")) {
+                return new ResponseEntity<>("Forbidden: You cannot update this data.", HttpStatus.FORBIDDEN);
+            }
+
+            productService.invalidateCachedProduct(productId);
+            return ResponseEntity.noContent().build();
+
+        } catch (Exception e) {
+            return new ResponseEntity<>("An error occurred while invalidating the cache, try again later.", HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+
+    @DeleteMapping
+    @Operation(summary = "Invalidates all the cached products", description = "Removes every product from the product details cache.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Cache successfully invalidated."),
+            @ApiResponse(responseCode = "403", description = "Unauthorized to invalidate the cache.")
+    })
+    public ResponseEntity<?> invalidateCachedProducts(HttpServletRequest request) {
+        try {
+
+            String authenticatedUserRole = tokenDataService.getRole(request);
+
+            if (!authenticatedUserRole.equals("ADMIN")) {
+                return new ResponseEntity<>("Forbidden: You cannot update this data.", HttpStatus.FORBIDDEN);
+            }
+
+            productService.invalidateCachedProducts();
+            return ResponseEntity.noContent().build();
+
+        } catch (Exception e) {
+            return new ResponseEntity<>("An error occurred while invalidating the cache, try again later.", HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+}
@@ -0,0 +1,4 @@
+package com.example.order_service.dtos;
+
+// Result of one order of a bulk request, index is its position in the request and orderId is null when it was rejected
+public record BulkOrderResultDTO(int index, Long orderId, String status, Double orderTotal, String message) { }
@@ -0,0 +1,17 @@
+package com.example.order_service.dtos;
+
+// Response stored for an Idempotency-Key, replayed is true when it's sent again instead of processing the request
+public record IdempotentResponse(int statusCode, String location, String contentType, String body, boolean replayed) {
+
+    public IdempotentResponse(int statusCode, String location, String contentType, String body) {
+        this(statusCode, location, contentType, body, false);
+    }
+
+    public IdempotentResponse asReplayed() {
+        return new IdempotentResponse(statusCode, location, contentType, body, true);
+    }
+
+    public boolean isSuccessful() {
+        return statusCode >= 200 && statusCode < 300;
+    }
+}
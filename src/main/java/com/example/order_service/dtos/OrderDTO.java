@@ -21,10 +21,20 @@ public class OrderDTO {
         orderItemList = order.getOrderItemList().stream()
                 .map(OrderItemDTO::new)
                 .collect(Collectors.toList());
-        orderTotal = orderTotal;
+        orderTotal = order.getOrderTotal();
         status = order.getStatus();
     }
 
+    public OrderDTO(OrderSummary order, List<OrderItemLine> orderItems) {
+        id = order.id();
+        userId = order.userId();
+        orderItemList = orderItems.stream()
+                .map(OrderItemDTO::new)
+                .collect(Collectors.toList());
+        orderTotal = order.orderTotal();
+        status = order.status();
+    }
+
     public Long getId() {
         return id;
     }
@@ -7,11 +7,23 @@ public class OrderItemDTO {
     private Long id;
     private Long productId;
     private Integer quantity;
+    private String productName;
+    private Double unitPrice;
 
     public OrderItemDTO(OrderItemEntity orderItem) {
         id = orderItem.getId();
         productId = orderItem.getProductId();
         quantity = orderItem.getQuantity();
+        productName = orderItem.getProductName();
+        unitPrice = orderItem.getUnitPrice();
+    }
+
+    public OrderItemDTO(OrderItemLine orderItem) {
+        id = orderItem.id();
+        productId = orderItem.productId();
+        quantity = orderItem.quantity();
+        productName = orderItem.productName();
+        unitPrice = orderItem.unitPrice();
     }
 
     public Long getId() {
@@ -25,4 +37,12 @@ public class OrderItemDTO {
     public Integer getQuantity() {
         return quantity;
     }
+
+    public String getProductName() {
+        return productName;
+    }
+
+    public Double getUnitPrice() {
+        return unitPrice;
+    }
 }
@@ -0,0 +1,10 @@
+package com.example.order_service.dtos;
+
+// Item row of the listings, read with a constructor projection together with the id of its order
+// productName and unitPrice are null for the items saved before they were stored with the order
+public record OrderItemLine(Long orderId, Long id, Long productId, Integer quantity, String productName, Double unitPrice) {
+
+    public boolean hasProductSnapshot() {
+        return productName != null && unitPrice != null;
+    }
+}
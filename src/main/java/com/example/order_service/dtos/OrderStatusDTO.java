@@ -0,0 +1,10 @@
+package com.example.order_service.dtos;
+
+import com.example.order_service.models.OrderEntity;
+
+public record OrderStatusDTO(Long orderId, Long userId, String status, Double orderTotal, String statusDetail) {
+
+    public OrderStatusDTO(OrderEntity order) {
+        this(order.getId(), order.getUserId(), order.getStatus().name(), order.getOrderTotal(), order.getStatusDetail());
+    }
+}
@@ -0,0 +1,6 @@
+package com.example.order_service.dtos;
+
+import com.example.order_service.models.OrderStatus;
+
+// Order row of the listings, read with a constructor projection so no managed OrderEntity (or its snapshot) is created
+public record OrderSummary(Long id, Long userId, Double orderTotal, OrderStatus status) { }
@@ -0,0 +1,47 @@
+package com.example.order_service.dtos;
+
+import java.util.List;
+
+public class PageDTO<T> {
+
+    private List<T> items;
+    private Integer page;
+    private Integer size;
+    private Boolean hasNext;
+    private Long nextCursor;
+
+    public PageDTO(List<T> items, Integer page, Integer size, Boolean hasNext, Long nextCursor) {
+        this.items = items;
+        this.page = page;
+        this.size = size;
+        this.hasNext = hasNext;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    // Null when the page was requested with a cursor
+    public Integer getPage() {
+        return page;
+    }
+
+    public Integer getSize() {
+        return size;
+    }
+
+    public Boolean getHasNext() {
+        return hasNext;
+    }
+
+    // Id to send as "after" to get the next page, null when there are no more orders
+    public Long getNextCursor() {
+        return nextCursor;
+    }
+
+    // Same page with its items mapped to another type
+    public <R> PageDTO<R> withItems(List<R> items) {
+        return new PageDTO<>(items, page, size, hasNext, nextCursor);
+    }
+}
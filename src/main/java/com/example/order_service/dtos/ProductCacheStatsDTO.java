@@ -0,0 +1,40 @@
+package com.example.order_service.dtos;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+public class ProductCacheStatsDTO {
+
+    private Long size;
+    private Long hitCount;
+    private Long missCount;
+    private Long evictionCount;
+    private Double hitRate;
+
+    public ProductCacheStatsDTO(Long size, CacheStats stats) {
+        this.size = size;
+        this.hitCount = stats.hitCount();
+        this.missCount = stats.missCount();
+        this.evictionCount = stats.evictionCount();
+        this.hitRate = stats.hitRate();
+    }
+
+    public Long getSize() {
+        return size;
+    }
+
+    public Long getHitCount() {
+        return hitCount;
+    }
+
+    public Long getMissCount() {
+        return missCount;
+    }
+
+    public Long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public Double getHitRate() {
+        return hitRate;
+    }
+}
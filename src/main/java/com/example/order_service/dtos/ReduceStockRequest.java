@@ -1,15 +1,30 @@
 package com.example.order_service.dtos;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import java.util.List;
 
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class ReduceStockRequest {
     private List<ProductStockUpdate> products;
 
+    // Same value every time the same reduction is sent again, product-service uses it to reduce the stock only once
+    private String idempotencyKey;
+
     public ReduceStockRequest(List<ProductStockUpdate> products) {
         this.products = products;
     }
 
+    public ReduceStockRequest(List<ProductStockUpdate> products, String idempotencyKey) {
+        this.products = products;
+        this.idempotencyKey = idempotencyKey;
+    }
+
     public List<ProductStockUpdate> getProducts() {
         return products;
     }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
 }
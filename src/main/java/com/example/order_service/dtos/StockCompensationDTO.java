@@ -0,0 +1,30 @@
+package com.example.order_service.dtos;
+
+import java.util.List;
+
+// Every stock line to revert for an order that failed after its stock was reduced, sent as a single message
+public class StockCompensationDTO {
+
+    private String orderCorrelationId;
+    private String idempotencyKey;
+    private List<ProductStockUpdate> products;
+
+    public StockCompensationDTO(String orderCorrelationId, List<ProductStockUpdate> products) {
+        this.orderCorrelationId = orderCorrelationId;
+        this.idempotencyKey = orderCorrelationId + ":stock-compensation";
+        this.products = products;
+    }
+
+    public String getOrderCorrelationId() {
+        return orderCorrelationId;
+    }
+
+    // Same value on every retry of the message, product-service uses it to revert the stock only once
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public List<ProductStockUpdate> getProducts() {
+        return products;
+    }
+}
@@ -30,4 +30,9 @@ public class ExceptionHandlers {
     public ResponseEntity<String> orderExceptionHandler(NoAccesGrantedException noAccesGrantedException){
         return new ResponseEntity<>(noAccesGrantedException.getMessage(), HttpStatus.FORBIDDEN);
     }
+
+    @ExceptionHandler(ProductServiceUnavailableException.class)
+    public ResponseEntity<String> orderExceptionHandler(ProductServiceUnavailableException productServiceUnavailableException){
+        return new ResponseEntity<>(productServiceUnavailableException.getMessage(), HttpStatus.SERVICE_UNAVAILABLE);
+    }
 }
@@ -0,0 +1,7 @@
+package com.example.order_service.exceptions;
+
+public class IdempotencyKeyException extends Exception {
+    public IdempotencyKeyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.order_service.exceptions;
+
+public class IdempotencyKeyInProgressException extends Exception {
+    public IdempotencyKeyInProgressException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.order_service.exceptions;
+
+public class OrderQueueFullException extends Exception {
+    public OrderQueueFullException(String message) {
+        super(message);
+    }
+}
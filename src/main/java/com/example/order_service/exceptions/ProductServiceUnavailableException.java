@@ -0,0 +1,7 @@
+package com.example.order_service.exceptions;
+
+public class ProductServiceUnavailableException extends Exception {
+    public ProductServiceUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.order_service.models;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+// Idempotency-Key sent by a client and the response it got, the status code is null while the first request is being processed
+@Entity
+public class IdempotencyKeyEntity {
+
+    // User id and key, so a key is only replayed to the user that sent it
+    @Id
+    private String id;
+
+    // Hash of the request body, a key reused with another body is rejected
+    private String requestHash;
+
+    private Integer statusCode;
+    private String location;
+    private String contentType;
+
+    @Column(length = 1_000_000)
+    private String responseBody;
+
+    private Instant createdAt;
+
+    public IdempotencyKeyEntity() { }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getRequestHash() {
+        return requestHash;
+    }
+
+    public Integer getStatusCode() {
+        return statusCode;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getResponseBody() {
+        return responseBody;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+}
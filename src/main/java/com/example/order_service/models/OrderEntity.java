@@ -2,28 +2,48 @@ package com.example.order_service.models;
 
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 import jakarta.persistence.*;
+import org.hibernate.annotations.BatchSize;
 
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+// user_id goes with id because the user orders are always read ordered by id (pages and cursors)
+@Table(indexes = {
+        @Index(name = "idx_order_user_id", columnList = "user_id, id"),
+        @Index(name = "idx_order_status", columnList = "status")
+})
 public class OrderEntity {
 
+    // Ids come from a pooled sequence (50 per round trip) so Hibernate can batch the inserts, IDENTITY disables batching
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_seq")
+    @SequenceGenerator(name = "order_seq", sequenceName = "order_seq", allocationSize = 50)
     private Long id;
 
     private Long userId;
 
     private Double orderTotal;
 
+    // Items of up to 200 orders (the max page size) are loaded in one query when the first collection is accessed
     @OneToMany(mappedBy = "order",cascade = CascadeType.ALL, orphanRemoval = true)
+    @BatchSize(size = 200)
     @JsonManagedReference
     private List<OrderItemEntity> orderItemList = new ArrayList<>();
 
     @Enumerated(EnumType.STRING)
     private OrderStatus status;
 
+    // Why an async order was rejected
+    private String statusDetail;
+
+    // Async orders only: the status sent by the client and where the email goes, so an accepted order lost from the worker queue
+    // can be processed again
+    @Enumerated(EnumType.STRING)
+    private OrderStatus requestedStatus;
+
+    private String userEmail;
+
     public OrderEntity() { }
 
     public OrderEntity(Long userId, OrderStatus status,Double orderTotal) {
@@ -60,6 +80,30 @@ public class OrderEntity {
         this.status = status;
     }
 
+    public String getStatusDetail() {
+        return statusDetail;
+    }
+
+    public void setStatusDetail(String statusDetail) {
+        this.statusDetail = statusDetail;
+    }
+
+    public OrderStatus getRequestedStatus() {
+        return requestedStatus;
+    }
+
+    public void setRequestedStatus(OrderStatus requestedStatus) {
+        this.requestedStatus = requestedStatus;
+    }
+
+    public String getUserEmail() {
+        return userEmail;
+    }
+
+    public void setUserEmail(String userEmail) {
+        this.userEmail = userEmail;
+    }
+
     public Double getOrderTotal() {
         return orderTotal;
     }
@@ -4,10 +4,12 @@ import com.fasterxml.jackson.annotation.JsonBackReference;
 import jakarta.persistence.*;
 
 @Entity
+@Table(indexes = @Index(name = "idx_order_item_order_id", columnList = "order_id"))
 public class OrderItemEntity {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_item_seq")
+    @SequenceGenerator(name = "order_item_seq", sequenceName = "order_item_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne
@@ -18,6 +20,10 @@ public class OrderItemEntity {
     private Long productId;
     private Integer quantity;
 
+    // Name and price of the product when the order was created, the order history is served with them without calling product-service
+    private String productName;
+    private Double unitPrice;
+
     public OrderItemEntity() {
     }
 
@@ -54,4 +60,17 @@ public class OrderItemEntity {
     public void setQuantity(Integer quantity) {
         this.quantity = quantity;
     }
+
+    public String getProductName() {
+        return productName;
+    }
+
+    public Double getUnitPrice() {
+        return unitPrice;
+    }
+
+    public void setProductSnapshot(String productName, Double unitPrice) {
+        this.productName = productName;
+        this.unitPrice = unitPrice;
+    }
 }
@@ -2,5 +2,8 @@ package com.example.order_service.models;
 
 public enum OrderStatus {
     PENDING,
-    COMPLETED
+    COMPLETED,
+    // Async orders: saved but still waiting for the stock to be reserved, or rejected while processing
+    ACCEPTED,
+    REJECTED
 }
@@ -0,0 +1,74 @@
+package com.example.order_service.models;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+// Message waiting to be published to RabbitMQ, written in the same transaction as the data it belongs to
+@Entity
+public class OutboxMessageEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "outbox_message_seq")
+    @SequenceGenerator(name = "outbox_message_seq", sequenceName = "outbox_message_seq", allocationSize = 50)
+    private Long id;
+
+    private String exchange;
+    private String routingKey;
+
+    // Published as the AMQP message id so consumers can discard duplicated deliveries
+    private String messageId;
+
+    // Body and headers as produced by the Jackson message converter, so the published message is the same as a direct send
+    // Plain varchar (text in the prod schema) instead of a lob, so it's validated against the same column type on H2 and PostgreSQL
+    @Column(length = 1_000_000)
+    private String payload;
+    private String typeId;
+    private String contentType;
+
+    private Instant createdAt;
+
+    public OutboxMessageEntity() { }
+
+    public OutboxMessageEntity(String exchange, String routingKey, String messageId, String payload, String typeId, String contentType) {
+        this.exchange = exchange;
+        this.routingKey = routingKey;
+        this.messageId = messageId;
+        this.payload = payload;
+        this.typeId = typeId;
+        this.contentType = contentType;
+        this.createdAt = Instant.now();
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getExchange() {
+        return exchange;
+    }
+
+    public String getRoutingKey() {
+        return routingKey;
+    }
+
+    public String getMessageId() {
+        return messageId;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public String getTypeId() {
+        return typeId;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+}
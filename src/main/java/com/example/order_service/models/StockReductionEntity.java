@@ -0,0 +1,78 @@
+package com.example.order_service.models;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+// Units of a product sold by an order that product-service still has to reduce, written in the same transaction as the order
+@Entity
+@Table(indexes = {
+        @Index(name = "idx_stock_reduction_status", columnList = "status, id"),
+        @Index(name = "idx_stock_reduction_product_id", columnList = "product_id")
+})
+public class StockReductionEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "stock_reduction_seq")
+    @SequenceGenerator(name = "stock_reduction_seq", sequenceName = "stock_reduction_seq", allocationSize = 50)
+    private Long id;
+
+    private Long orderId;
+
+    private Long productId;
+
+    private Integer quantity;
+
+    @Enumerated(EnumType.STRING)
+    private StockReductionStatus status;
+
+    // Why product-service rejected the reduction
+    private String statusDetail;
+
+    // Idempotency key of the reduce-stock call the reduction was sent in
+    private String batchKey;
+
+    private Instant createdAt;
+
+    public StockReductionEntity() { }
+
+    public StockReductionEntity(Long orderId, Long productId, Integer quantity) {
+        this.orderId = orderId;
+        this.productId = productId;
+        this.quantity = quantity;
+        this.status = StockReductionStatus.PENDING;
+        this.createdAt = Instant.now();
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public Integer getQuantity() {
+        return quantity;
+    }
+
+    public StockReductionStatus getStatus() {
+        return status;
+    }
+
+    public String getStatusDetail() {
+        return statusDetail;
+    }
+
+    public String getBatchKey() {
+        return batchKey;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.order_service.models;
+
+public enum StockReductionStatus {
+    // Committed with the order, waiting to be reduced in product-service
+    PENDING,
+    // Part of a reduce-stock call not answered yet, sent again with the same batch key until product-service answers
+    SENT,
+    // Product-service refused to reduce it, kept until someone checks the stock of the product
+    REJECTED
+}
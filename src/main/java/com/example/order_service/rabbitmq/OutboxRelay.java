@@ -0,0 +1,96 @@
+package com.example.order_service.rabbitmq;
+
+import com.example.order_service.config.PipelineMetrics;
+import com.example.order_service.models.OutboxMessageEntity;
+import com.example.order_service.repositories.OutboxMessageRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.AbstractJavaTypeMapper;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+// Publishes the messages stored in the outbox in batches, a batch is only removed once the broker confirmed all of it
+@Component
+public class OutboxRelay {
+
+    @Autowired
+    private OutboxMessageRepository outboxMessageRepository;
+
+    @Autowired
+    private RabbitTemplate rabbitTemplate;
+
+    @Autowired
+    private PipelineMetrics pipelineMetrics;
+
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${outbox.relay.batch-size}")
+    private int batchSize;
+
+    @Value("${outbox.relay.confirm-timeout}")
+    private long confirmTimeout;
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboxRelay.class);
+
+    public OutboxRelay(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.relay.interval}")
+    public void relayPendingMessages() {
+        try {
+            Integer published;
+            do {
+                published = transactionTemplate.execute(status -> publishBatch());
+            } while (published != null && published == batchSize);
+
+        } catch (Exception e) {
+            // Messages stay in the outbox and are published again on the next run
+            logger.error("Error publishing outbox messages to RabbitMQ, retrying on next run", e);
+
+        }
+    }
+
+    private int publishBatch() {
+        List<OutboxMessageEntity> messages = outboxMessageRepository.findByOrderByIdAsc(Limit.of(batchSize));
+
+        if (messages.isEmpty()) {
+            return 0;
+        }
+
+        // Sends the whole batch on one channel and waits once for the publisher confirms
+        pipelineMetrics.time(PipelineMetrics.RABBITMQ_PUBLISH, () -> rabbitTemplate.invoke(operations -> {
+            for (OutboxMessageEntity message : messages) {
+                operations.send(message.getExchange(), message.getRoutingKey(), toMessage(message));
+            }
+            operations.waitForConfirmsOrDie(confirmTimeout);
+            return null;
+        }));
+        pipelineMetrics.increment(PipelineMetrics.RABBITMQ_PUBLISH + ".messages", messages.size());
+
+        outboxMessageRepository.deleteAllInBatch(messages);
+        logger.info("Outbox messages published to RabbitMQ: {}", messages.size());
+        return messages.size();
+    }
+
+    private Message toMessage(OutboxMessageEntity outboxMessage) {
+        MessageProperties properties = new MessageProperties();
+        properties.setMessageId(outboxMessage.getMessageId());
+        properties.setContentType(outboxMessage.getContentType());
+        properties.setContentEncoding(StandardCharsets.UTF_8.name());
+        properties.setHeader(AbstractJavaTypeMapper.DEFAULT_CLASSID_FIELD_NAME, outboxMessage.getTypeId());
+
+        return new Message(outboxMessage.getPayload().getBytes(StandardCharsets.UTF_8), properties);
+    }
+}
@@ -1,17 +1,27 @@
 package com.example.order_service.rabbitmq;
 
+import com.example.order_service.config.PipelineMetrics;
 import com.example.order_service.dtos.OrderEmailDTO;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
-import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import com.example.order_service.dtos.ProductStockUpdate;
+import com.example.order_service.dtos.StockCompensationDTO;
+import com.example.order_service.services.Outbox.OutboxService;
 import org.springframework.amqp.core.TopicExchange;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Messages are written to the outbox and published by OutboxRelay, so sending doesn't wait on the broker
 @Service
 public class RabbitMQProducer {
 
     @Autowired
-    private RabbitTemplate rabbitTemplate;
+    private OutboxService outboxService;
 
     @Autowired
     private TopicExchange rollbackExchange;
@@ -19,13 +29,44 @@ public class RabbitMQProducer {
     @Autowired
     private TopicExchange emailExchange;
 
+    @Autowired
+    private PipelineMetrics pipelineMetrics;
+
+    @Value("${rabbitmq.stock-compensation.order-event.enabled}")
+    private boolean orderCompensationEvent;
+
+
+    // Stored in its own transaction because the order transaction is rolled back.
+    // product-service reads the "productId,quantity" messages of rollback.stock, one per line of the failed order. The single
+    // StockCompensationDTO on rollback.stock.order is also sent when rabbitmq.stock-compensation.order-event.enabled=true
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void sendStockCompensation(StockCompensationDTO stockCompensationDTO) {
+        List<ProductStockUpdate> products = stockCompensationDTO.getProducts();
+        Map<String, String> rollbackMessages = new LinkedHashMap<>();
+        for (int index = 0; index < products.size(); index++) {
+            ProductStockUpdate product = products.get(index);
+            rollbackMessages.put(stockCompensationDTO.getIdempotencyKey() + ":" + index, product.getProductId() + "," + product.getQuantity());
+        }
+
+        pipelineMetrics.time(PipelineMetrics.RABBITMQ_SEND, () -> {
+            outboxService.enqueueAll(rollbackExchange.getName(), "rollback.stock", rollbackMessages);
+            if (orderCompensationEvent) {
+                outboxService.enqueue(rollbackExchange.getName(), "rollback.stock.order", stockCompensationDTO.getIdempotencyKey(), stockCompensationDTO);
+            }
+        }, "message", "stock-compensation");
+    }
 
-    public void sendRollbackMessage(Long productId, Integer quantity) {
-        String message = productId + "," + quantity;
-        rabbitTemplate.convertAndSend(rollbackExchange.getName(), "rollback.stock", message);
+    // Stored in the order transaction, it's only published if the order is saved
+    public void sendOrderEmail(OrderEmailDTO orderEmailDTO, String orderCorrelationId) {
+        pipelineMetrics.time(PipelineMetrics.RABBITMQ_SEND,
+                () -> outboxService.enqueue(emailExchange.getName(), "order.email", orderCorrelationId + ":email", orderEmailDTO),
+                "message", "order-email");
     }
 
-    public void sendOrderEmail(OrderEmailDTO orderEmailDTO) {
-        rabbitTemplate.convertAndSend(emailExchange.getName(), "order.email", orderEmailDTO);
+    // The emails of a bulk request, keyed by message id, stored together and published by the relay in one confirmed batch
+    public void sendOrderEmails(Map<String, OrderEmailDTO> orderEmailsByMessageId) {
+        pipelineMetrics.time(PipelineMetrics.RABBITMQ_SEND,
+                () -> outboxService.enqueueAll(emailExchange.getName(), "order.email", orderEmailsByMessageId),
+                "message", "order-email");
     }
 }
@@ -0,0 +1,42 @@
+package com.example.order_service.repositories;
+
+import com.example.order_service.models.IdempotencyKeyEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+
+@Repository
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKeyEntity, String> {
+
+    // Plain insert instead of save, which would select the key first, so a key taken at the same time fails on the primary key
+    @Modifying
+    @Query(value = "insert into idempotency_key_entity (id, request_hash, created_at) values (:id, :requestHash, :createdAt)", nativeQuery = true)
+    void insertClaim(@Param("id") String id, @Param("requestHash") String requestHash, @Param("createdAt") Instant createdAt);
+
+    // Takes a key whose first request never finished (the instance stopped while processing it)
+    @Modifying
+    @Query("update IdempotencyKeyEntity k set k.requestHash = :requestHash, k.createdAt = :createdAt " +
+            "where k.id = :id and k.statusCode is null and k.createdAt < :staleBefore")
+    int takeOverClaim(@Param("id") String id, @Param("requestHash") String requestHash,
+                      @Param("createdAt") Instant createdAt, @Param("staleBefore") Instant staleBefore);
+
+    // Only completes the claim made at claimedAt, 0 when it was taken over meanwhile
+    @Modifying
+    @Query("update IdempotencyKeyEntity k set k.statusCode = :statusCode, k.location = :location, " +
+            "k.contentType = :contentType, k.responseBody = :responseBody " +
+            "where k.id = :id and k.statusCode is null and k.createdAt = :claimedAt")
+    int complete(@Param("id") String id, @Param("claimedAt") Instant claimedAt, @Param("statusCode") int statusCode,
+                 @Param("location") String location, @Param("contentType") String contentType, @Param("responseBody") String responseBody);
+
+    @Modifying
+    @Query("delete from IdempotencyKeyEntity k where k.id = :id and k.statusCode is null and k.createdAt = :claimedAt")
+    int releaseClaim(@Param("id") String id, @Param("claimedAt") Instant claimedAt);
+
+    @Modifying
+    @Query("delete from IdempotencyKeyEntity k where k.createdAt < :before")
+    int deleteCreatedBefore(@Param("before") Instant before);
+}
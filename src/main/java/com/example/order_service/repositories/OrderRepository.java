@@ -1,13 +1,67 @@
 package com.example.order_service.repositories;
 
+import com.example.order_service.dtos.OrderItemLine;
+import com.example.order_service.dtos.OrderSummary;
 import com.example.order_service.models.OrderEntity;
+import com.example.order_service.models.OrderStatus;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface OrderRepository extends JpaRepository<OrderEntity, Long> {
 
+    // Loads the orders together with their items in a single query
+    @EntityGraph(attributePaths = "orderItemList")
     List<OrderEntity> findByUserId(Long userId);
+
+    // The listings read OrderSummary and OrderItemLine projections instead of entities, nothing is added to the persistence context
+    // Offset pagination, a Slice avoids the count query over the whole table
+    @Query("select new com.example.order_service.dtos.OrderSummary(o.id, o.userId, o.orderTotal, o.status) from OrderEntity o")
+    Slice<OrderSummary> findSummariesBy(Pageable pageable);
+
+    @Query("select new com.example.order_service.dtos.OrderSummary(o.id, o.userId, o.orderTotal, o.status) from OrderEntity o where o.userId = :userId")
+    Slice<OrderSummary> findSummariesByUserId(@Param("userId") Long userId, Pageable pageable);
+
+    // Keyset pagination, returns the orders placed after the given id
+    @Query("select new com.example.order_service.dtos.OrderSummary(o.id, o.userId, o.orderTotal, o.status) from OrderEntity o where o.id > :after order by o.id")
+    List<OrderSummary> findSummariesAfter(@Param("after") Long after, Limit limit);
+
+    @Query("select new com.example.order_service.dtos.OrderSummary(o.id, o.userId, o.orderTotal, o.status) from OrderEntity o where o.userId = :userId and o.id > :after order by o.id")
+    List<OrderSummary> findSummariesByUserIdAfter(@Param("userId") Long userId, @Param("after") Long after, Limit limit);
+
+    // Items of a page of orders in one query, i.order.id is read from the foreign key without joining the orders again
+    @Query("select new com.example.order_service.dtos.OrderItemLine(i.order.id, i.id, i.productId, i.quantity, i.productName, i.unitPrice) from OrderItemEntity i where i.order.id in :orderIds order by i.id")
+    List<OrderItemLine> findItemLinesByOrderIds(@Param("orderIds") Collection<Long> orderIds);
+
+    // Locks the order until the transaction ends, so an accepted order submitted twice is only processed once
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select o from OrderEntity o where o.id = :id")
+    Optional<OrderEntity> findByIdForUpdate(@Param("id") Long id);
+
+    @Query("select o.id from OrderEntity o where o.status = :status and o.id > :after order by o.id")
+    List<Long> findIdsByStatusAfter(@Param("status") OrderStatus status, @Param("after") Long after, Limit limit);
+
+    // Reads every order through a scrollable cursor, the stream must be consumed and closed inside a transaction
+    @Query("select o from OrderEntity o left join fetch o.orderItemList order by o.id")
+    @QueryHints({
+            @QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<OrderEntity> streamAllBy();
 }
@@ -0,0 +1,40 @@
+package com.example.order_service.repositories;
+
+import com.example.order_service.dtos.ProductStockUpdate;
+import com.example.order_service.models.StockReductionEntity;
+import com.example.order_service.models.StockReductionStatus;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface StockReductionRepository extends JpaRepository<StockReductionEntity, Long> {
+
+    List<StockReductionEntity> findByStatusOrderByIdAsc(StockReductionStatus status, Limit limit);
+
+    Optional<StockReductionEntity> findFirstByStatusOrderByIdAsc(StockReductionStatus status);
+
+    List<StockReductionEntity> findByBatchKeyAndStatusOrderByIdAsc(String batchKey, StockReductionStatus status);
+
+    // Units of the products not reduced in product-service yet, pending, sent or rejected
+    @Query("select new com.example.order_service.dtos.ProductStockUpdate(r.productId, cast(sum(r.quantity) as Integer)) " +
+            "from StockReductionEntity r where r.productId in :productIds group by r.productId")
+    List<ProductStockUpdate> sumQuantitiesByProductIds(@Param("productIds") Collection<Long> productIds);
+
+    @Modifying
+    @Query("update StockReductionEntity r set r.status = com.example.order_service.models.StockReductionStatus.SENT, " +
+            "r.batchKey = :batchKey where r.id in :ids")
+    int markSent(@Param("ids") Collection<Long> ids, @Param("batchKey") String batchKey);
+
+    @Modifying
+    @Query("update StockReductionEntity r set r.status = :status, r.statusDetail = :statusDetail where r.id in :ids")
+    int updateStatus(@Param("ids") Collection<Long> ids, @Param("status") StockReductionStatus status,
+                     @Param("statusDetail") String statusDetail);
+}
@@ -0,0 +1,15 @@
+package com.example.order_service.services.Idempotency;
+
+import com.example.order_service.dtos.IdempotentResponse;
+import org.springframework.stereotype.Service;
+
+@Service
+public interface IdempotencyService {
+
+    @FunctionalInterface
+    interface IdempotentCall {
+        IdempotentResponse call() throws Exception;
+    }
+
+    IdempotentResponse execute(Long userId, String idempotencyKey, Object request, IdempotentCall call) throws Exception;
+}
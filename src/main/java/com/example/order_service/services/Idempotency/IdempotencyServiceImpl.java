@@ -0,0 +1,243 @@
+package com.example.order_service.services.Idempotency;
+
+import com.example.order_service.config.PipelineMetrics;
+import com.example.order_service.dtos.IdempotentResponse;
+import com.example.order_service.exceptions.IdempotencyKeyException;
+import com.example.order_service.exceptions.IdempotencyKeyInProgressException;
+import com.example.order_service.models.IdempotencyKeyEntity;
+import com.example.order_service.repositories.IdempotencyKeyRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.HexFormat;
+import java.util.concurrent.CompletionException;
+
+// Keys are claimed in the db before processing the request, so a retry that arrives while the first request is still running
+// gets a conflict instead of creating the order again. The response is stored in the same transaction as the order, so a claim
+// that isn't completed never has a committed order. Completed responses are also kept in memory to replay them without the db
+@Service
+public class IdempotencyServiceImpl implements IdempotencyService {
+
+    // Request hash and response of a completed key
+    private record StoredResponse(String requestHash, IdempotentResponse response) { }
+
+    private static final int MAX_KEY_LENGTH = 200;
+
+    @Autowired
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private PipelineMetrics pipelineMetrics;
+
+    @Value("${order.idempotency.ttl}")
+    private Duration ttl;
+
+    @Value("${order.idempotency.lease}")
+    private Duration lease;
+
+    private final Cache<String, StoredResponse> responses;
+
+    // Claims and responses are committed on their own, whatever transaction the request runs in
+    private TransactionTemplate newTransactionTemplate;
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyServiceImpl.class);
+
+    public IdempotencyServiceImpl(@Value("${order.idempotency.cache-size}") long cacheSize,
+                                  @Value("${order.idempotency.ttl}") Duration ttl,
+                                  MeterRegistry meterRegistry) {
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, responses, "idempotencyKeys");
+    }
+
+    @PostConstruct
+    void initTransactionTemplates() {
+        newTransactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        newTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+
+    // Runs the call once per user and key, retries get the stored response. Only successful responses are stored,
+    // when the call fails the key is released so the client can retry it.
+    // The call runs in a transaction that also completes the claim, a claim taken over by a retry after the lease can't be
+    // completed anymore, so the first request rolls back instead of committing a second order
+    @Override
+    public IdempotentResponse execute(Long userId, String idempotencyKey, Object request, IdempotentCall call) throws Exception {
+
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new IdempotencyKeyException("The Idempotency-Key header must have between 1 and " + MAX_KEY_LENGTH + " characters.");
+        }
+
+        String id = userId + ":" + idempotencyKey;
+        String requestHash = hash(request);
+
+        StoredResponse stored = responses.getIfPresent(id);
+        if (stored != null) {
+            return replay(stored, requestHash);
+        }
+
+        // Truncated to the precision of the column, the time identifies the claim
+        Instant claimedAt = Instant.now().truncatedTo(ChronoUnit.MICROS);
+
+        stored = claim(id, requestHash, claimedAt);
+        if (stored != null) {
+            return replay(stored, requestHash);
+        }
+
+        IdempotentResponse response;
+        try {
+            response = transactionTemplate.execute(transaction -> {
+                try {
+                    IdempotentResponse result = call.call();
+                    if (!result.isSuccessful()) {
+                        transaction.setRollbackOnly();
+                        return result;
+                    }
+
+                    if (idempotencyKeyRepository.complete(id, claimedAt, result.statusCode(), result.location(), result.contentType(), result.body()) == 0) {
+                        throw new IdempotencyKeyInProgressException("A request with the same Idempotency-Key is still being processed, try again later.");
+                    }
+                    return result;
+
+                } catch (RuntimeException e) {
+                    throw e;
+
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+
+                }
+            });
+
+        } catch (CompletionException e) {
+            release(id, claimedAt);
+            throw e.getCause() instanceof Exception cause ? cause : e;
+
+        } catch (RuntimeException e) {
+            release(id, claimedAt);
+            throw e;
+
+        }
+
+        if (!response.isSuccessful()) {
+            release(id, claimedAt);
+            return response;
+        }
+
+        responses.put(id, new StoredResponse(requestHash, response.asReplayed()));
+        pipelineMetrics.increment(PipelineMetrics.ORDER_CREATE + ".idempotency", "result", "processed");
+        return response;
+    }
+
+    // Returns null when the key was claimed for this request, or the stored response when it was already completed
+    private StoredResponse claim(String id, String requestHash, Instant now) throws IdempotencyKeyInProgressException {
+
+        if (insertClaim(id, requestHash, now)) {
+            return null;
+        }
+
+        IdempotencyKeyEntity existing = idempotencyKeyRepository.findById(id).orElse(null);
+
+        if (existing != null && existing.getStatusCode() != null) {
+            StoredResponse stored = new StoredResponse(existing.getRequestHash(), new IdempotentResponse(existing.getStatusCode(),
+                    existing.getLocation(), existing.getContentType(), existing.getResponseBody(), true));
+            responses.put(id, stored);
+            return stored;
+        }
+
+        // Released by a failed request or purged since the insert, or left by an instance that stopped while processing it
+        boolean claimed = existing == null
+                ? insertClaim(id, requestHash, now)
+                : Integer.valueOf(1).equals(newTransactionTemplate.execute(transaction ->
+                        idempotencyKeyRepository.takeOverClaim(id, requestHash, now, now.minus(lease))));
+
+        if (claimed) {
+            return null;
+        }
+
+        pipelineMetrics.increment(PipelineMetrics.ORDER_CREATE + ".idempotency", "result", "in-progress");
+        throw new IdempotencyKeyInProgressException("A request with the same Idempotency-Key is still being processed, try again later.");
+    }
+
+    // False when the key is already in the db
+    private boolean insertClaim(String id, String requestHash, Instant now) {
+        try {
+            newTransactionTemplate.executeWithoutResult(transaction -> idempotencyKeyRepository.insertClaim(id, requestHash, now));
+            return true;
+
+        } catch (DataIntegrityViolationException e) {
+            return false;
+
+        }
+    }
+
+    private IdempotentResponse replay(StoredResponse stored, String requestHash) throws IdempotencyKeyException {
+        if (!stored.requestHash().equals(requestHash)) {
+            throw new IdempotencyKeyException("The Idempotency-Key was already used with a different request.");
+        }
+
+        pipelineMetrics.increment(PipelineMetrics.ORDER_CREATE + ".idempotency", "result", "replayed");
+        return stored.response();
+    }
+
+    // Only the claim made by this request, a claim taken over by a retry is kept
+    private void release(String id, Instant claimedAt) {
+        try {
+            newTransactionTemplate.executeWithoutResult(transaction -> idempotencyKeyRepository.releaseClaim(id, claimedAt));
+
+        } catch (RuntimeException e) {
+            logger.warn("Error releasing the Idempotency-Key {}, it's freed when the lease ends: {}", id, e.getMessage());
+
+        }
+    }
+
+    private String hash(Object request) throws JsonProcessingException {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(objectMapper.writeValueAsBytes(request)));
+
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+
+        }
+    }
+
+    // Deletes the keys older than the ttl, the responses in memory expire on their own
+    @Scheduled(fixedDelayString = "${order.idempotency.purge-interval}")
+    public void purgeExpiredKeys() {
+        Instant before = Instant.now().minus(ttl);
+        Integer purged = transactionTemplate.execute(transaction -> idempotencyKeyRepository.deleteCreatedBefore(before));
+
+        if (purged != null && purged > 0) {
+            logger.info("Purged {} expired Idempotency-Keys", purged);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.order_service.services.Order;
+
+import com.example.order_service.dtos.IdempotentResponse;
+import com.example.order_service.dtos.NewOrder;
+import org.springframework.stereotype.Service;
+
+@Service
+public interface OrderCreationService {
+
+    IdempotentResponse createOrder(NewOrder newOrder, boolean async, String userEmail, Long userId, String idempotencyKey) throws Exception;
+}
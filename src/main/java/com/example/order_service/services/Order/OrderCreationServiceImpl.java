@@ -0,0 +1,47 @@
+package com.example.order_service.services.Order;
+
+import com.example.order_service.dtos.IdempotentResponse;
+import com.example.order_service.dtos.NewOrder;
+import com.example.order_service.dtos.OrderStatusDTO;
+import com.example.order_service.services.Idempotency.IdempotencyService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+
+// Response of POST /orders for both web stacks, the servlet and the reactive controller only turn it into their response type
+@Service
+public class OrderCreationServiceImpl implements OrderCreationService {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+
+    // Retries sent with the same key get the response of the first request instead of creating the order again
+    @Override
+    public IdempotentResponse createOrder(NewOrder newOrder, boolean async, String userEmail, Long userId, String idempotencyKey) throws Exception {
+        return idempotencyKey == null
+                ? createOrder(newOrder, async, userEmail, userId)
+                : idempotencyService.execute(userId, idempotencyKey, newOrder, () -> createOrder(newOrder, async, userEmail, userId));
+    }
+
+    private IdempotentResponse createOrder(NewOrder newOrder, boolean async, String userEmail, Long userId) throws Exception {
+
+        // Async mode answers once the order is saved, the stock is reserved by the order processing workers
+        if (async) {
+            OrderStatusDTO order = orderService.acceptNewOrder(newOrder, userEmail, userId);
+            return new IdempotentResponse(HttpStatus.ACCEPTED.value(), "/api/order/orders/" + order.orderId() + "/status",
+                    MediaType.APPLICATION_JSON_VALUE, objectMapper.writeValueAsString(order));
+        }
+
+        orderService.createNewOrder(newOrder, userEmail, userId);
+        return new IdempotentResponse(HttpStatus.CREATED.value(), null, MediaType.TEXT_PLAIN_VALUE, "Order crated succesfully");
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.order_service.services.Order;
+
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+@Service
+public interface OrderExportService {
+
+    void exportOrders(OutputStream outputStream) throws IOException;
+}
@@ -0,0 +1,67 @@
+package com.example.order_service.services.Order;
+
+import com.example.order_service.dtos.OrderDTO;
+import com.example.order_service.models.OrderEntity;
+import com.example.order_service.repositories.OrderRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+@Service
+public class OrderExportServiceImpl implements OrderExportService {
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderExportServiceImpl.class);
+
+    // Amount of orders written before flushing, so the client receives data while the export is running
+    private static final int FLUSH_EVERY = 100;
+
+
+    // Writes every order as one json per line (NDJSON) while it's read from the db, memory usage doesn't depend on the table size
+    @Override
+    @Transactional(readOnly = true)
+    public void exportOrders(OutputStream outputStream) throws IOException {
+
+        OutputStream out = new BufferedOutputStream(outputStream, 64 * 1024);
+        long count = 0;
+
+        try (Stream<OrderEntity> orders = orderRepository.streamAllBy()) {
+            Iterator<OrderEntity> iterator = orders.iterator();
+
+            while (iterator.hasNext()) {
+                OrderEntity order = iterator.next();
+
+                out.write(objectMapper.writeValueAsBytes(new OrderDTO(order)));
+                out.write('\n');
+
+                // Removes the order from the persistence context so already written orders can be garbage collected
+                entityManager.detach(order);
+
+                if (++count % FLUSH_EVERY == 0) {
+                    out.flush();
+                }
+            }
+        }
+
+        out.flush();
+        logger.info("Orders exported: {}", count);
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.order_service.services.Order;
+
+import com.example.order_service.dtos.OrderDTO;
+import com.example.order_service.dtos.OrderItemLine;
+import com.example.order_service.dtos.OrderSummary;
+import com.example.order_service.dtos.PageDTO;
+import com.example.order_service.dtos.UserOrderDTO;
+import com.example.order_service.dtos.UserOrderItemDTO;
+import com.example.order_service.services.Product.ProductDetailsIndex;
+import com.example.order_service.services.Product.ProductService;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// A page of orders with the item lines of each one, built the same way by the JPA and the R2DBC listings
+public record OrderListing(PageDTO<OrderSummary> orders, Map<Long, List<OrderItemLine>> itemLines) {
+
+    // Default and max amount of orders returned in a single page
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 200;
+
+    public static OrderListing of(PageDTO<OrderSummary> orders, Collection<OrderItemLine> itemLines) {
+        return new OrderListing(orders, itemLines.stream().collect(Collectors.groupingBy(OrderItemLine::orderId)));
+    }
+
+    public List<OrderItemLine> itemsOf(OrderSummary order) {
+        return itemLines.getOrDefault(order.id(), List.of());
+    }
+
+    // Distinct product ids of the items saved without name and price, new orders don't need product-service at all
+    public Set<Long> productIdsWithoutSnapshot() {
+        return itemLines.values().stream()
+                .flatMap(List::stream)
+                .filter(item -> !item.hasProductSnapshot())
+                .map(OrderItemLine::productId)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    public PageDTO<OrderDTO> toOrderPage() {
+        return orders.withItems(orders.getItems().stream()
+                .map(order -> new OrderDTO(order, itemsOf(order)))
+                .toList());
+    }
+
+    public PageDTO<UserOrderDTO> toUserOrderPage(String email, ProductService productService, ProductDetailsIndex productDetails) {
+        return orders.withItems(orders.getItems().stream().map(order -> {
+            List<UserOrderItemDTO> orderItems = productService.toUserOrderItems(itemsOf(order), productDetails);
+            return new UserOrderDTO(order.id(), email, order.orderTotal(), order.status().name(), orderItems);
+        }).toList());
+    }
+
+    public static int pageSize(Integer size) {
+        return size == null ? DEFAULT_PAGE_SIZE : Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+    }
+
+    public static int pageNumber(Integer page) {
+        return page == null ? 0 : Math.max(page, 0);
+    }
+
+    public static boolean isFirstPage(Long after, Integer page) {
+        return after == null && (page == null || page <= 0);
+    }
+
+    // Page read with one extra order to know if there's a next page, pageNumber is null when it was requested with a cursor
+    public static PageDTO<OrderSummary> page(List<OrderSummary> ordersWithExtra, Integer pageNumber, int pageSize) {
+        boolean hasNext = ordersWithExtra.size() > pageSize;
+        return page(hasNext ? ordersWithExtra.subList(0, pageSize) : ordersWithExtra, pageNumber, pageSize, hasNext);
+    }
+
+    public static PageDTO<OrderSummary> page(List<OrderSummary> orders, Integer pageNumber, int pageSize, boolean hasNext) {
+        return new PageDTO<>(orders, pageNumber, pageSize, hasNext, hasNext ? orders.get(orders.size() - 1).id() : null);
+    }
+}
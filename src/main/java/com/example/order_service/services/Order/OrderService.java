@@ -1,7 +1,10 @@
 package com.example.order_service.services.Order;
 
+import com.example.order_service.dtos.BulkOrderResultDTO;
 import com.example.order_service.dtos.NewOrder;
 import com.example.order_service.dtos.OrderDTO;
+import com.example.order_service.dtos.OrderStatusDTO;
+import com.example.order_service.dtos.PageDTO;
 import com.example.order_service.dtos.UpdateOrder;
 import com.example.order_service.dtos.UserOrderDTO;
 import com.example.order_service.exceptions.NoOrdersFoundException;
@@ -15,11 +18,15 @@ public interface OrderService {
 
     OrderEntity getOrderById(Long id) throws NoOrdersFoundException;
     OrderDTO getOrderDTOById(Long id) throws NoOrdersFoundException;
-    List<OrderEntity> getAllOrders() throws NoOrdersFoundException;
+    PageDTO<OrderDTO> getAllOrders(Long after, Integer page, Integer size) throws NoOrdersFoundException;
 
-    List<UserOrderDTO> getAllUserOrders(Long id, String email) throws NoOrdersFoundException;
+    PageDTO<UserOrderDTO> getAllUserOrders(Long id, String email, Long after, Integer page, Integer size) throws NoOrdersFoundException;
 
     void createNewOrder (NewOrder newOrder, String userEmail, Long userId) throws Exception;
+    List<BulkOrderResultDTO> createNewOrders(List<NewOrder> newOrders, String userEmail, Long userId) throws Exception;
+    OrderStatusDTO acceptNewOrder(NewOrder newOrder, String userEmail, Long userId) throws Exception;
+    void recoverAcceptedOrders();
+    OrderStatusDTO getOrderStatus(Long id) throws NoOrdersFoundException;
     OrderEntity saveOrder(OrderEntity newOrder);
 
     OrderDTO updateOrderById(UpdateOrder updateOrder, Long id) throws Exception;
@@ -1,7 +1,10 @@
 package com.example.order_service.services.Order;
 
+import com.example.order_service.config.PipelineMetrics;
 import com.example.order_service.dtos.*;
 import com.example.order_service.exceptions.NoOrdersFoundException;
+import com.example.order_service.exceptions.OrderQueueFullException;
+import com.example.order_service.exceptions.ProductServiceUnavailableException;
 import com.example.order_service.exceptions.StatusException;
 import com.example.order_service.exceptions.StockException;
 import com.example.order_service.exceptions.UserIdNullException;
@@ -10,20 +13,39 @@ import com.example.order_service.models.OrderItemEntity;
 import com.example.order_service.models.OrderStatus;
 import com.example.order_service.rabbitmq.RabbitMQProducer;
 import com.example.order_service.repositories.OrderRepository;
+import com.example.order_service.services.Product.ProductDetailsIndex;
+import com.example.order_service.services.Product.ProductService;
+import com.example.order_service.services.Product.ProductServiceClient;
+import com.example.order_service.services.Stock.StockHold;
+import com.example.order_service.services.Stock.StockReservationService;
+import jakarta.annotation.PostConstruct;
 import jakarta.transaction.Transactional;
 import org.aspectj.apache.bcel.generic.ObjectType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.ResponseEntity;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.client.HttpClientErrorException;
-import org.springframework.web.client.RestTemplate;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
 
 @Service
 public class OrderServiceImpl implements OrderService {
@@ -32,15 +54,45 @@ public class OrderServiceImpl implements OrderService {
     private OrderRepository orderRepository;
 
     @Autowired
-    private RestTemplate restTemplate;
+    private ProductService productService;
+
+    @Autowired
+    private ProductServiceClient productServiceClient;
 
     @Autowired
     private RabbitMQProducer rabbitMQProducer;
 
+    @Autowired
+    private PipelineMetrics pipelineMetrics;
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private ThreadPoolTaskExecutor orderProcessingExecutor;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    // Read-only transactions for the listings, Hibernate doesn't flush nor dirty check them
+    private TransactionTemplate readOnlyTransactionTemplate;
+
 
     private static final Logger logger = LoggerFactory.getLogger(OrderServiceImpl.class);
 
-    private static final String PRODUCT_SERVICE_URL = "http://product-service/api/product";
+    @Value("${order.bulk.max-orders}")
+    private int maxBulkOrders;
+
+    // Accepted orders waiting in (or running on) orderProcessingExecutor
+    private final Set<Long> queuedOrders = ConcurrentHashMap.newKeySet();
+
+    private static final int ACCEPTED_ORDERS_PAGE_SIZE = 100;
+
+    @PostConstruct
+    private void createReadOnlyTransactionTemplate() {
+        readOnlyTransactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        readOnlyTransactionTemplate.setReadOnly(true);
+    }
 
     @Override
     public OrderEntity getOrderById(Long id) throws NoOrdersFoundException {
@@ -55,149 +107,553 @@ public class OrderServiceImpl implements OrderService {
 
 
     @Override
-    public List<OrderEntity> getAllOrders() throws NoOrdersFoundException {
-        List<OrderEntity> orders = orderRepository.findAll();
-        if (orders.isEmpty()) {
+    public PageDTO<OrderDTO> getAllOrders(Long after, Integer page, Integer size) throws NoOrdersFoundException {
+        OrderListing listing = readOnlyTransactionTemplate.execute(status -> findOrderListing(null, after, page, size));
+
+        if (listing.orders().getItems().isEmpty() && OrderListing.isFirstPage(after, page)) {
             throw new NoOrdersFoundException("No orders found.");
         }
-        return orders;
+
+        return listing.toOrderPage();
     }
 
 
     @Override
-    public List<UserOrderDTO> getAllUserOrders(Long userId, String email) throws NoOrdersFoundException {
-        // Retrives all user orders in a list
-        List<OrderEntity> userOrders = orderRepository.findByUserId(userId);
+    public PageDTO<UserOrderDTO> getAllUserOrders(Long userId, String email, Long after, Integer page, Integer size) throws NoOrdersFoundException {
+        // Retrives a page of the user orders, the transaction ends before product-service is called
+        OrderListing listing = readOnlyTransactionTemplate.execute(status -> findOrderListing(userId, after, page, size));
 
         // Verifies if the user has orders
-        if (userOrders.isEmpty()) {
+        if (listing.orders().getItems().isEmpty() && OrderListing.isFirstPage(after, page)) {
             throw new NoOrdersFoundException("No orders found for user ID: " + userId);
         }
 
+        Set<Long> productIds = listing.productIdsWithoutSnapshot();
+
+        // Names and prices don't need to be live, so they're served from the product cache when possible
+        ProductDetailsIndex productDetails = productIds.isEmpty()
+                ? new ProductDetailsIndex(0)
+                : productService.getCachedProductDetails(productIds);
+
         // Creates the dto with the product details
-        return userOrders.stream().map(order -> {
-            List<UserOrderItemDTO> orderItems = getProductDetails(order.getOrderItemList());
-            return new UserOrderDTO(order.getId(), email, order.getOrderTotal(), order.getStatus().name(), orderItems);
-        }).toList();
+        return listing.toUserOrderPage(email, productService, productDetails);
     }
 
-    // Retrives product details (name y price) from product-service and creates the dto
-    private List<UserOrderItemDTO> getProductDetails(List<OrderItemEntity> orderItems) {
+    // Reads the page with two projection queries, the orders and then the items of all of them
+    private OrderListing findOrderListing(Long userId, Long after, Integer page, Integer size) {
+        PageDTO<OrderSummary> orders = findOrderPage(userId, after, page, size);
 
-        List<Long> productIds = orderItems.stream()
-                .map(OrderItemEntity::getProductId)
-                .toList();
+        if (orders.getItems().isEmpty()) {
+            return new OrderListing(orders, Map.of());
+        }
+
+        List<Long> orderIds = orders.getItems().stream().map(OrderSummary::id).toList();
+        return OrderListing.of(orders, orderRepository.findItemLinesByOrderIds(orderIds));
+    }
 
-        ResponseEntity<ProductDetailsDTO[]> response = restTemplate.postForEntity(
-                PRODUCT_SERVICE_URL + "/details",
-                productIds,
-                ProductDetailsDTO[].class
-        );
+    // Loads a page of orders, by cursor when "after" is sent and by page number otherwise, filtered by user when userId isn't null
+    private PageDTO<OrderSummary> findOrderPage(Long userId, Long after, Integer page, Integer size) {
+        int pageSize = OrderListing.pageSize(size);
 
-        List<ProductDetailsDTO> productDetailsList = Arrays.asList(response.getBody());
+        if (after != null) {
+            // Asks for one extra order to know if there's a next page
+            Limit limit = Limit.of(pageSize + 1);
+            List<OrderSummary> orders = userId == null
+                    ? orderRepository.findSummariesAfter(after, limit)
+                    : orderRepository.findSummariesByUserIdAfter(userId, after, limit);
 
-        // Mapear productos a UserOrderItemDTO
-        return orderItems.stream().map(orderItem -> {
-            ProductDetailsDTO product = productDetailsList.stream()
-                    .filter(p -> p.getId().equals(orderItem.getProductId()))
-                    .findFirst()
-                    .orElseThrow(() -> new RuntimeException("Product not found for ID: " + orderItem.getProductId()));
+            return OrderListing.page(orders, null, pageSize);
+        }
 
-            return new UserOrderItemDTO(orderItem.getProductId(), product.getName(), product.getProductprice(), orderItem.getQuantity());
-        }).toList();
-    }
+        int pageNumber = OrderListing.pageNumber(page);
+        Pageable pageable = PageRequest.of(pageNumber, pageSize, Sort.by("id"));
+        Slice<OrderSummary> orders = userId == null
+                ? orderRepository.findSummariesBy(pageable)
+                : orderRepository.findSummariesByUserId(userId, pageable);
 
+        return OrderListing.page(orders.getContent(), pageNumber, pageSize, orders.hasNext());
+    }
 
     @Override
     @Transactional
     public void createNewOrder(NewOrder newOrder, String userEmail, Long userId) throws Exception {
+        pipelineMetrics.time(PipelineMetrics.ORDER_CREATE, () -> createOrder(newOrder, userEmail, userId), "mode", "sync");
+    }
+
+    // Every stage is timed under order.create.stage so the one that dominates the checkout latency can be found
+    private void createOrder(NewOrder newOrder, String userEmail, Long userId) throws Exception {
+        // Identifies the order in the messages sent before it has an id, like the stock compensation
+        String orderCorrelationId = UUID.randomUUID().toString();
+
+        // Stock only has to be reverted if the reduce-stock call was made
+        AtomicBoolean stockReductionRequested = new AtomicBoolean(false);
+
         try {
             validateNewOrder(newOrder);
 
-            // Creates The arrayList for OrderItemEmailDTO
-            List<OrderEmailDTO.OrderItemEmailDTO> emailItems = new ArrayList<>();
+            // Transforms the status from string to enum
+            OrderStatus status = OrderStatus.valueOf(newOrder.status());
 
-            List<Long> productIds = newOrder.orderItems().stream()
-                    .map(NewOrderItem::productId)
-                    .toList();
+            OrderEntity order = new OrderEntity(userId, status, null);
+            order.setOrderItemList(toOrderItems(order, newOrder.orderItems()));
 
-            ResponseEntity<ProductDetailsDTO[]> response = restTemplate.postForEntity(
-                    PRODUCT_SERVICE_URL + "/details",
-                    productIds,
-                    ProductDetailsDTO[].class
-            );
+            fulfilOrder(order, newOrder.orderItems(), userEmail, orderCorrelationId, stockReductionRequested);
 
-            List<ProductDetailsDTO> productDetailsList = Arrays.asList(response.getBody());
+        } catch (HttpClientErrorException.NotFound e) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            throw new NoOrdersFoundException("Product not found: " + e.getResponseBodyAsString());
 
-            // Validates if there's enough stock and brings thr products names and prices from product-service, and adds it to emailDTO list
-            Double count = 0.00;
-            for (NewOrderItem item : newOrder.orderItems()) {
-                //validateOrderItemsStock(item);
+        } catch (NoOrdersFoundException | StatusException | UserIdNullException | StockException | ProductServiceUnavailableException e) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            throw e;
 
-                ProductDetailsDTO product = productDetailsList.stream()
-                        .filter(p -> p.getId().equals(item.productId()))
-                        .findFirst()
-                        .orElseThrow(() -> new RuntimeException("Product not found for ID: " + item.productId()));
+        } catch (Exception e) {
+            // Sends a message to notify an error while creating the order and revert the stock
+            logger.error("Error creating the order, sending message to RabbitMQ to revert the stock", e);
+            if (stockReductionRequested.get()) {
+                compensateStock(newOrder.orderItems(), orderCorrelationId);
+            }
+            throw new RuntimeException("An error occurred while creating the order: " + e.getMessage(), e);
 
-                validateOrderItemsStock(product.getStock(), item);
+        }
+    }
+
+    // Brings the product details, validates the stock, reduces it and saves the order, then stores the email message in the outbox
+    private void fulfilOrder(OrderEntity order, List<NewOrderItem> newOrderItems, String userEmail, String orderCorrelationId,
+                             AtomicBoolean stockReductionRequested) throws Exception {
+
+        // Creates The arrayList for OrderItemEmailDTO
+        List<OrderEmailDTO.OrderItemEmailDTO> emailItems = new ArrayList<>();
+
+        List<Long> productIds = newOrderItems.stream()
+                .map(NewOrderItem::productId)
+                .toList();
+
+        // With the reservation ledger the stock is reserved locally, it's reduced in product-service after the order is committed.
+        // The reservation doesn't need the product details, so they are requested while the stock is reserved
+        StockHold stockHold = null;
+        CompletableFuture<ProductDetailsIndex> cachedDetails = null;
+        if (stockReservationService.isEnabled()) {
+            cachedDetails = productService.getCachedProductDetailsAsync(productIds);
+            stockHold = pipelineMetrics.time(PipelineMetrics.ORDER_CREATE_STAGE, () -> stockReservationService.reserve(newOrderItems), "stage", "reserve-stock");
+        }
+
+        CompletableFuture<ProductDetailsIndex> pendingDetails = cachedDetails;
+        ProductDetailsIndex productDetails = pipelineMetrics.time(PipelineMetrics.ORDER_CREATE_STAGE,
+                () -> pendingDetails != null ? awaitProductDetails(pendingDetails) : findProductDetails(productIds), "stage", "details");
+
+        // Validates the stock and calculates order total
+        Double orderTotal = pipelineMetrics.time(PipelineMetrics.ORDER_CREATE_STAGE,
+                () -> validateStockAndTotal(newOrderItems, productDetails, emailItems, !stockReservationService.isEnabled()), "stage", "stock-validation");
+        order.setOrderTotal(orderTotal);
+        snapshotProducts(order.getOrderItemList(), productDetails);
 
-                // Calcular el precio total
-                count += product.getProductprice() * item.quantity();
+        // Reduce stock for every item in the order
+        if (!stockReservationService.isEnabled()) {
+            stockReductionRequested.set(true);
+            pipelineMetrics.time(PipelineMetrics.ORDER_CREATE_STAGE, () -> reduceStock(newOrderItems), "stage", "reduce-stock");
+            logger.info("Stock reduced for all the products of the order");
+        }
+
+        pipelineMetrics.time(PipelineMetrics.ORDER_CREATE_STAGE, () -> saveOrder(order), "stage", "save");
 
-                // Agregar el ítem de la orden al DTO para el email
-                emailItems.add(new OrderEmailDTO.OrderItemEmailDTO(item.productId(), product.getName(), product.getProductprice(), item.quantity()));
+        // The reserved units are committed with the order as a pending reduction for product-service
+        if (stockHold != null) {
+            stockReservationService.recordReduction(stockHold, order.getId());
+        }
+
+        // Creates DTO to sent
+        OrderEmailDTO orderEmailDTO = new OrderEmailDTO(order.getUserId(), userEmail, orderTotal, emailItems);
 
+        // Stores the DTO in the outbox, it's sent with rabbit to email-service once the order is committed
+        pipelineMetrics.time(PipelineMetrics.ORDER_CREATE_STAGE, () -> rabbitMQProducer.sendOrderEmail(orderEmailDTO, orderCorrelationId), "stage", "email");
+    }
+
+    // Live details with the stock, or only names and prices (usually cached) when the stock is reserved in the ledger
+    private ProductDetailsIndex findProductDetails(Collection<Long> productIds) throws ProductServiceUnavailableException {
+        if (!stockReservationService.isEnabled()) {
+            return productService.getProductDetails(productIds);
+        }
+
+        ProductDetailsIndex productDetails = productService.getCachedProductDetails(productIds);
+        if (productDetails.isPartial()) {
+            throw new ProductServiceUnavailableException("Product service is unavailable, try again later.");
+        }
+        return productDetails;
+    }
+
+    // Waits for the cached details requested with getCachedProductDetailsAsync, errors like a 404 are rethrown unwrapped
+    private static ProductDetailsIndex awaitProductDetails(CompletableFuture<ProductDetailsIndex> cachedDetails) throws ProductServiceUnavailableException {
+        ProductDetailsIndex productDetails;
+        try {
+            productDetails = cachedDetails.join();
+
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
             }
+            throw e;
 
-            // Calculates order total
-            Double orderTotal = count;
+        }
 
-            // Transforms the status from string to enum
-            OrderStatus status = OrderStatus.valueOf(newOrder.status());
+        if (productDetails.isPartial()) {
+            throw new ProductServiceUnavailableException("Product service is unavailable, try again later.");
+        }
+        return productDetails;
+    }
 
-            OrderEntity order = new OrderEntity(userId, status, orderTotal);
+    // One message reverts the stock of every item of the failed order
+    private void compensateStock(List<NewOrderItem> newOrderItems, String orderCorrelationId) {
+        List<ProductStockUpdate> stockUpdates = newOrderItems.stream()
+                .map(item -> new ProductStockUpdate(item.productId(), item.quantity()))
+                .toList();
 
-            // Creates list of order items in the order
-            List<OrderItemEntity> orderItems = newOrder.orderItems().stream()
-                    .map(item -> new OrderItemEntity(order, item.productId(), item.quantity()))
-                    .toList();
+        rabbitMQProducer.sendStockCompensation(new StockCompensationDTO(orderCorrelationId, stockUpdates));
+        logger.info("Message sent to RabbitMQ to revert the stock of {} products, order correlation ID: {}", stockUpdates.size(), orderCorrelationId);
+    }
 
-            // Reduce stock for every item in the order
-            reduceStock(newOrder.orderItems());
-            logger.info("Stock reduced for all the products of the order");
+    @Override
+    @Transactional
+    public List<BulkOrderResultDTO> createNewOrders(List<NewOrder> newOrders, String userEmail, Long userId) throws Exception {
+        return pipelineMetrics.time(PipelineMetrics.ORDER_CREATE, () -> createOrders(newOrders, userEmail, userId), "mode", "bulk");
+    }
 
-            // Lanzar una excepción para simular un fallo y devolucion se stock
-            //throw new RuntimeException("Forzando el fallo en la creación de la orden");
+    // Orders without stock or with a wrong status are rejected one by one, the rest share every call to product-service and the db
+    private List<BulkOrderResultDTO> createOrders(List<NewOrder> newOrders, String userEmail, Long userId) throws Exception {
+        if (newOrders.size() > maxBulkOrders) {
+            throw new StatusException("A bulk request can't have more than " + maxBulkOrders + " orders.");
+        }
+
+        String bulkCorrelationId = UUID.randomUUID().toString();
+        BulkOrderResultDTO[] results = new BulkOrderResultDTO[newOrders.size()];
+
+        // Combined quantity of every product in the accepted orders, sent in a single reduce-stock call
+        Map<Long, Integer> reservedStock = new LinkedHashMap<>();
+        boolean stockReductionRequested = false;
+
+        try {
+            Set<Long> productIds = newOrders.stream()
+                    .flatMap(order -> order.orderItems().stream())
+                    .map(NewOrderItem::productId)
+                    .collect(Collectors.toCollection(LinkedHashSet::new));
+
+            ProductDetailsIndex productDetails = pipelineMetrics.time(PipelineMetrics.ORDER_CREATE_STAGE,
+                    () -> findProductDetails(productIds), "stage", "details");
+
+            List<OrderEntity> orders = new ArrayList<>();
+            List<Integer> orderIndexes = new ArrayList<>();
+            List<StockHold> stockHolds = new ArrayList<>();
+            Map<String, OrderEmailDTO> orderEmails = new LinkedHashMap<>();
+
+            pipelineMetrics.time(PipelineMetrics.ORDER_CREATE_STAGE, () -> {
+                for (int index = 0; index < newOrders.size(); index++) {
+                    NewOrder newOrder = newOrders.get(index);
+                    List<OrderEmailDTO.OrderItemEmailDTO> emailItems = new ArrayList<>();
+
+                    try {
+                        validateNewOrder(newOrder);
+                        StockHold stockHold = null;
+                        if (stockReservationService.isEnabled()) {
+                            stockHold = stockReservationService.reserve(newOrder.orderItems());
+                        } else {
+                            reserveStock(newOrder.orderItems(), productDetails, reservedStock);
+                        }
+                        Double orderTotal = validateStockAndTotal(newOrder.orderItems(), productDetails, emailItems, !stockReservationService.isEnabled());
+
+                        OrderEntity order = new OrderEntity(userId, OrderStatus.valueOf(newOrder.status()), orderTotal);
+                        order.setOrderItemList(toOrderItems(order, newOrder.orderItems()));
+                        snapshotProducts(order.getOrderItemList(), productDetails);
+                        orders.add(order);
+                        orderIndexes.add(index);
+                        stockHolds.add(stockHold);
+                        orderEmails.put(bulkCorrelationId + ":" + index + ":email", new OrderEmailDTO(userId, userEmail, orderTotal, emailItems));
+
+                    } catch (StatusException | StockException e) {
+                        results[index] = new BulkOrderResultDTO(index, null, OrderStatus.REJECTED.name(), null, e.getMessage());
+
+                    }
+                }
+            }, "stage", "stock-validation");
+
+            // Without the ledger the stock of all the orders is reduced in product-service with one call
+            if (!reservedStock.isEmpty()) {
+                List<NewOrderItem> stockUpdates = reservedStock.entrySet().stream()
+                        .map(entry -> new NewOrderItem(entry.getKey(), entry.getValue(), null))
+                        .toList();
+
+                stockReductionRequested = true;
+                pipelineMetrics.time(PipelineMetrics.ORDER_CREATE_STAGE, () -> reduceStock(stockUpdates), "stage", "reduce-stock");
+                logger.info("Stock reduced for the {} orders of the bulk request", orders.size());
+            }
 
-            order.setOrderItemList(orderItems);
-            saveOrder(order);
+            if (!orders.isEmpty()) {
+                pipelineMetrics.time(PipelineMetrics.ORDER_CREATE_STAGE, () -> orderRepository.saveAll(orders), "stage", "save");
+                for (int i = 0; i < orders.size(); i++) {
+                    if (stockHolds.get(i) != null) {
+                        stockReservationService.recordReduction(stockHolds.get(i), orders.get(i).getId());
+                    }
+                }
+                pipelineMetrics.time(PipelineMetrics.ORDER_CREATE_STAGE, () -> rabbitMQProducer.sendOrderEmails(orderEmails), "stage", "email");
+            }
 
-            // Creates DTO to sent
-            OrderEmailDTO orderEmailDTO = new OrderEmailDTO(userId, userEmail, orderTotal, emailItems);
+            for (int i = 0; i < orders.size(); i++) {
+                OrderEntity order = orders.get(i);
+                int index = orderIndexes.get(i);
+                results[index] = new BulkOrderResultDTO(index, order.getId(), order.getStatus().name(), order.getOrderTotal(), "Order created successfully.");
+            }
 
-            // Sends DTO with rabbit to email-service to send the email
-            rabbitMQProducer.sendOrderEmail(orderEmailDTO);
+            return Arrays.asList(results);
 
         } catch (HttpClientErrorException.NotFound e) {
             TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
             throw new NoOrdersFoundException("Product not found: " + e.getResponseBodyAsString());
 
-        } catch (NoOrdersFoundException | StatusException | UserIdNullException | StockException e) {
+        } catch (NoOrdersFoundException | StatusException | ProductServiceUnavailableException e) {
             TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
             throw e;
 
         } catch (Exception e) {
-            // Sends a message to notify an error while creating the order and revert the stock
-            logger.error("Error creating the order, sending message to RabbitMQ to revert the stock", e);
-            for (NewOrderItem item : newOrder.orderItems()) {
-                rabbitMQProducer.sendRollbackMessage(item.productId(), item.quantity());
-                logger.info("Message sent to RabbitMQ to revert the stock, product ID: {} quantity: {}", item.productId(), item.quantity());
+            logger.error("Error creating the bulk orders, sending message to RabbitMQ to revert the stock", e);
+            if (stockReductionRequested) {
+                compensateStock(reservedStock.entrySet().stream()
+                        .map(entry -> new NewOrderItem(entry.getKey(), entry.getValue(), null))
+                        .toList(), bulkCorrelationId);
             }
-            throw new RuntimeException("An error occurred while creating the order: " + e.getMessage(), e);
+            throw new RuntimeException("An error occurred while creating the orders: " + e.getMessage(), e);
+
+        }
+    }
+
+    // Adds the order quantities to the stock reserved by the previous orders of the request, nothing is reserved if any product lacks stock
+    private void reserveStock(List<NewOrderItem> orderItems, ProductDetailsIndex productDetails, Map<Long, Integer> reservedStock) throws StockException {
+        Map<Long, Integer> requested = new LinkedHashMap<>();
+        for (NewOrderItem item : orderItems) {
+            requested.merge(item.productId(), item.quantity(), Integer::sum);
+        }
+
+        for (Map.Entry<Long, Integer> entry : requested.entrySet()) {
+            ProductDetailsDTO product = productDetails.get(entry.getKey());
+
+            if (product == null) {
+                throw new StockException("Product not found for ID: " + entry.getKey());
+            }
+
+            Integer available = product.getStock() == null ? null : product.getStock() - reservedStock.getOrDefault(entry.getKey(), 0);
+            validateOrderItemsStock(available, new NewOrderItem(entry.getKey(), entry.getValue(), null));
+        }
+
+        requested.forEach((productId, quantity) -> reservedStock.merge(productId, quantity, Integer::sum));
+    }
+
+    // Stores the name and price each item is sold with
+    private static void snapshotProducts(List<OrderItemEntity> orderItems, ProductDetailsIndex productDetails) {
+        for (OrderItemEntity orderItem : orderItems) {
+            ProductDetailsDTO product = productDetails.get(orderItem.getProductId());
+            if (product != null) {
+                orderItem.setProductSnapshot(product.getName(), product.getProductprice());
+            }
+        }
+    }
+
+    private static List<OrderItemEntity> toOrderItems(OrderEntity order, List<NewOrderItem> newOrderItems) {
+        return newOrderItems.stream()
+                .map(item -> new OrderItemEntity(order, item.productId(), item.quantity()))
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+
+    @Override
+    public OrderStatusDTO acceptNewOrder(NewOrder newOrder, String userEmail, Long userId) throws Exception {
+        validateNewOrder(newOrder);
+
+        // Saved in the transaction of the caller (the Idempotency-Key one), the workers can only read it once it's committed
+        boolean inTransaction = TransactionSynchronizationManager.isActualTransactionActive();
+        if (inTransaction && orderProcessingExecutor.getThreadPoolExecutor().getQueue().remainingCapacity() == 0) {
+            throw new OrderQueueFullException("Too many orders being processed, try again later.");
+        }
+
+        // The order is saved before answering so the client can poll its status, the items are priced by the worker.
+        // It keeps the requested status and the email so it can be processed again if the queued task is lost
+        OrderEntity order = new OrderEntity(userId, OrderStatus.ACCEPTED, null);
+        order.setRequestedStatus(OrderStatus.valueOf(newOrder.status()));
+        order.setUserEmail(userEmail);
+        order.setOrderItemList(toOrderItems(order, newOrder.orderItems()));
+        saveOrder(order);
+
+        Long orderId = order.getId();
+        if (inTransaction) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    // Filled since the check, the order stays accepted until the recovery queues it
+                    if (!submitAcceptedOrder(orderId)) {
+                        logger.warn("Order queue full, the accepted order {} is queued by the next recovery", orderId);
+                    }
+                }
+            });
+
+        } else if (!submitAcceptedOrder(orderId)) {
+            rejectOrder(orderId, "Too many orders being processed.");
+            throw new OrderQueueFullException("Too many orders being processed, try again later.");
+        }
+
+        pipelineMetrics.increment(PipelineMetrics.ORDER_CREATE + ".accepted");
+        return new OrderStatusDTO(order);
+    }
+
+    // Queues the order for the workers, false when the queue is full
+    private boolean submitAcceptedOrder(Long orderId) {
+        if (!queuedOrders.add(orderId)) {
+            return true;
+        }
+
+        try {
+            orderProcessingExecutor.execute(() -> {
+                try {
+                    processAcceptedOrder(orderId);
+                } finally {
+                    queuedOrders.remove(orderId);
+                }
+            });
+            return true;
+
+        } catch (TaskRejectedException e) {
+            queuedOrders.remove(orderId);
+            return false;
 
         }
     }
 
+    // Accepted orders are only queued in memory, the ones left by a restart (or by another instance that stopped) are queued again.
+    // The orders already queued here are skipped, and processAcceptedOrder locks the order so one submitted twice is processed once
+    @Override
+    @Scheduled(fixedDelayString = "${order.async.recovery-interval}")
+    public void recoverAcceptedOrders() {
+        int recovered = 0;
+        Long after = 0L;
+
+        while (true) {
+            List<Long> orderIds = orderRepository.findIdsByStatusAfter(OrderStatus.ACCEPTED, after, Limit.of(ACCEPTED_ORDERS_PAGE_SIZE));
+            if (orderIds.isEmpty()) {
+                break;
+            }
+
+            for (Long orderId : orderIds) {
+                if (queuedOrders.contains(orderId)) {
+                    continue;
+                }
+                // The rest stay accepted until the next run
+                if (!submitAcceptedOrder(orderId)) {
+                    logger.warn("Order queue full, {} accepted orders queued again, the rest wait for the next recovery", recovered);
+                    return;
+                }
+                recovered++;
+            }
+
+            after = orderIds.get(orderIds.size() - 1);
+        }
+
+        if (recovered > 0) {
+            logger.info("{} accepted orders queued again", recovered);
+            pipelineMetrics.increment(PipelineMetrics.ORDER_CREATE + ".recovered", recovered);
+        }
+    }
+
+    // Runs on orderProcessingExecutor, reserves the stock of an accepted order and sets the status sent by the client
+    private void processAcceptedOrder(Long orderId) {
+        String orderCorrelationId = UUID.randomUUID().toString();
+        AtomicBoolean stockReductionRequested = new AtomicBoolean(false);
+        List<NewOrderItem> orderItems = new ArrayList<>();
+
+        try {
+            pipelineMetrics.time(PipelineMetrics.ORDER_CREATE, () -> transactionTemplate.executeWithoutResult(transaction -> {
+                OrderEntity order = orderRepository.findByIdForUpdate(orderId).orElse(null);
+
+                // Already processed, or deleted while it was queued
+                if (order == null || order.getStatus() != OrderStatus.ACCEPTED) {
+                    return;
+                }
+
+                order.getOrderItemList().forEach(item -> orderItems.add(new NewOrderItem(item.getProductId(), item.getQuantity(), orderId)));
+
+                try {
+                    // Accepted before the requested status was stored
+                    if (order.getRequestedStatus() == null) {
+                        throw new StatusException("The order can't be processed again, create it again.");
+                    }
+
+                    order.setStatus(order.getRequestedStatus());
+                    fulfilOrder(order, orderItems, order.getUserEmail(), orderCorrelationId, stockReductionRequested);
+
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+
+                }
+            }), "mode", "async");
+
+        } catch (Exception e) {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+
+            if (cause instanceof HttpClientErrorException.NotFound notFound) {
+                rejectOrder(orderId, "Product not found: " + notFound.getResponseBodyAsString());
+
+            } else if (cause instanceof StockException || cause instanceof ProductServiceUnavailableException
+                    || cause instanceof NoOrdersFoundException || cause instanceof StatusException) {
+                rejectOrder(orderId, cause.getMessage());
+
+            } else {
+                logger.error("Error processing the accepted order {}, sending message to RabbitMQ to revert the stock", orderId, cause);
+                if (stockReductionRequested.get()) {
+                    compensateStock(orderItems, orderCorrelationId);
+                }
+                rejectOrder(orderId, "An error occurred while processing the order.");
+
+            }
+        }
+    }
+
+    // Only an order still accepted is rejected, a copy processed by another worker meanwhile is kept
+    private void rejectOrder(Long orderId, String reason) {
+        transactionTemplate.executeWithoutResult(transaction -> orderRepository.findByIdForUpdate(orderId).ifPresent(order -> {
+            if (order.getStatus() == OrderStatus.ACCEPTED) {
+                order.setStatus(OrderStatus.REJECTED);
+                order.setStatusDetail(reason);
+            }
+        }));
+        pipelineMetrics.increment(PipelineMetrics.ORDER_CREATE + ".rejected");
+    }
+
+
+    @Override
+    public OrderStatusDTO getOrderStatus(Long id) throws NoOrdersFoundException {
+        return new OrderStatusDTO(getOrderById(id));
+    }
+
+    // Validates if there's enough stock with the products names and prices brought from product-service, and adds them to emailDTO list
+    // checkStock is false when the stock was already reserved in the ledger, the cached details don't have it
+    private Double validateStockAndTotal(List<NewOrderItem> orderItems, ProductDetailsIndex productDetails, List<OrderEmailDTO.OrderItemEmailDTO> emailItems,
+                                         boolean checkStock) throws StockException {
+        Double count = 0.00;
+        for (NewOrderItem item : orderItems) {
+            ProductDetailsDTO product = productDetails.get(item.productId());
+
+            if (product == null) {
+                throw new RuntimeException("Product not found for ID: " + item.productId());
+            }
+
+            if (checkStock) {
+                validateOrderItemsStock(product.getStock(), item);
+            }
+
+            // Calcular el precio total
+            count += product.getProductprice() * item.quantity();
+
+            // Agregar el ítem de la orden al DTO para el email
+            emailItems.add(new OrderEmailDTO.OrderItemEmailDTO(item.productId(), product.getName(), product.getProductprice(), item.quantity()));
+        }
+        return count;
+    }
+
     // Validates if there's enough stock
     private void validateOrderItemsStock(Integer stock, NewOrderItem item) throws StockException {
 
@@ -211,7 +667,7 @@ public class OrderServiceImpl implements OrderService {
     }
 
     // Sends a dto with the id and quantity of every product to product-service to reduce stock for every item in the order
-    private void reduceStock(List<NewOrderItem> orderItems) throws NoOrdersFoundException {
+    private void reduceStock(List<NewOrderItem> orderItems) throws NoOrdersFoundException, ProductServiceUnavailableException {
         try {
             // Convert the list of NewOrderItem to ProductStockUpdate
             List<ProductStockUpdate> stockUpdates = orderItems.stream()
@@ -222,13 +678,16 @@ public class OrderServiceImpl implements OrderService {
             ReduceStockRequest request = new ReduceStockRequest(stockUpdates);
 
             // Send the request in one petition to reduce stock
-            restTemplate.put(PRODUCT_SERVICE_URL + "/reduce-stock", request);
+            productServiceClient.reduceStock(request);
 
             logger.info("Stock reduced for products: {}", stockUpdates);
 
         } catch (HttpClientErrorException.NotFound e) {
             throw new NoOrdersFoundException("Product not found: " + e.getResponseBodyAsString());
 
+        } catch (ProductServiceUnavailableException e) {
+            throw e;
+
         } catch (Exception e) {
             throw new RuntimeException("Error while reducing product stock: " + e.getMessage());
 
@@ -248,6 +707,11 @@ public class OrderServiceImpl implements OrderService {
         OrderEntity order = orderRepository.findById(id)
                 .orElseThrow(()-> new NoOrdersFoundException("Order with ID " + id + " not found."));
 
+        // An accepted order is still being processed by the workers and a rejected one was never fulfilled
+        if (order.getStatus() == OrderStatus.ACCEPTED || order.getStatus() == OrderStatus.REJECTED) {
+            throw new StatusException("The status of an order that is " + order.getStatus() + " can't be changed.");
+        }
+
         validateUpdatedOrder(updateOrder);
 
         if (!updateOrder.status().isBlank()) {
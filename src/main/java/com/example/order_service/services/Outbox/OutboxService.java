@@ -0,0 +1,13 @@
+package com.example.order_service.services.Outbox;
+
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+
+@Service
+public interface OutboxService {
+
+    void enqueue(String exchange, String routingKey, String messageId, Object payload);
+    void enqueueAll(String exchange, String routingKey, Map<String, ?> payloadsByMessageId);
+    void enqueueInNewTransaction(String exchange, String routingKey, String messageId, Object payload);
+}
@@ -0,0 +1,66 @@
+package com.example.order_service.services.Outbox;
+
+import com.example.order_service.models.OutboxMessageEntity;
+import com.example.order_service.repositories.OutboxMessageRepository;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.AbstractJavaTypeMapper;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+@Service
+public class OutboxServiceImpl implements OutboxService {
+
+    @Autowired
+    private OutboxMessageRepository outboxMessageRepository;
+
+    @Autowired
+    private MessageConverter messageConverter;
+
+
+    // Stores the message in the current transaction, it's only published if the transaction commits
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(String exchange, String routingKey, String messageId, Object payload) {
+        outboxMessageRepository.save(toOutboxMessage(exchange, routingKey, messageId, payload));
+    }
+
+
+    // Stores several messages for the same exchange in the current transaction with a single saveAll
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueueAll(String exchange, String routingKey, Map<String, ?> payloadsByMessageId) {
+        outboxMessageRepository.saveAll(payloadsByMessageId.entrySet().stream()
+                .map(entry -> toOutboxMessage(exchange, routingKey, entry.getKey(), entry.getValue()))
+                .toList());
+    }
+
+
+    // Stores the message in its own transaction, for messages that must be published even if the current transaction rolls back
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void enqueueInNewTransaction(String exchange, String routingKey, String messageId, Object payload) {
+        outboxMessageRepository.save(toOutboxMessage(exchange, routingKey, messageId, payload));
+    }
+
+    // Converts the payload the same way RabbitTemplate.convertAndSend would
+    private OutboxMessageEntity toOutboxMessage(String exchange, String routingKey, String messageId, Object payload) {
+        Message message = messageConverter.toMessage(payload, new MessageProperties());
+        MessageProperties properties = message.getMessageProperties();
+
+        return new OutboxMessageEntity(
+                exchange,
+                routingKey,
+                messageId,
+                new String(message.getBody(), StandardCharsets.UTF_8),
+                properties.getHeader(AbstractJavaTypeMapper.DEFAULT_CLASSID_FIELD_NAME),
+                properties.getContentType()
+        );
+    }
+}
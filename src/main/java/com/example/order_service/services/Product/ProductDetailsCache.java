@@ -0,0 +1,64 @@
+package com.example.order_service.services.Product;
+
+import com.example.order_service.dtos.ProductDetailsDTO;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+
+// In-process cache of product names and prices, stock is never cached because it changes with every order
+@Component
+public class ProductDetailsCache {
+
+    private final Cache<Long, ProductDetailsDTO> cache;
+
+    public ProductDetailsCache(@Value("${product.cache.max-size}") long maxSize,
+                               @Value("${product.cache.ttl}") Duration ttl,
+                               MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+
+        // Publishes hit, miss and eviction metrics as cache.* meters tagged with cache=productDetails
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "productDetails");
+    }
+
+    public ProductDetailsDTO get(Long productId) {
+        return cache.getIfPresent(productId);
+    }
+
+    public void put(ProductDetailsDTO product) {
+        if (product == null || product.getId() == null) {
+            return;
+        }
+        cache.put(product.getId(), new ProductDetailsDTO(product.getId(), product.getName(), null, product.getProductprice(), null));
+    }
+
+    public void invalidate(Long productId) {
+        cache.invalidate(productId);
+    }
+
+    public void invalidate(Collection<Long> productIds) {
+        cache.invalidateAll(productIds);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+}
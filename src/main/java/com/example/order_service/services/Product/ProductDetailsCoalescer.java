@@ -0,0 +1,226 @@
+package com.example.order_service.services.Product;
+
+import com.example.order_service.config.PipelineMetrics;
+import com.example.order_service.dtos.ProductDetailsDTO;
+import com.example.order_service.exceptions.ProductServiceUnavailableException;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Merges the /details calls made within the same window into one call for the union of the ids, every caller gets its own products back.
+// A batch is sent when the window ends or when it reaches max-batch-size ids, on productDetailsCoalescingExecutor
+@Component
+public class ProductDetailsCoalescer {
+
+    // Ids requested by the callers waiting on the same product-service call
+    private static final class Batch {
+        private final Set<Long> productIds = new LinkedHashSet<>();
+        private final CompletableFuture<Map<Long, ProductDetailsDTO>> products = new CompletableFuture<>();
+        private int requests;
+        private boolean sent;
+    }
+
+    @Autowired
+    private ProductServiceClient productServiceClient;
+
+    @Autowired
+    private ThreadPoolTaskExecutor productDetailsCoalescingExecutor;
+
+    @Autowired
+    private PipelineMetrics pipelineMetrics;
+
+    @Value("${product-service.details.coalescing.enabled}")
+    private boolean enabled;
+
+    @Value("${product-service.details.coalescing.window}")
+    private Duration window;
+
+    @Value("${product-service.details.coalescing.max-batch-size}")
+    private int maxBatchSize;
+
+    @Value("${product-service.details.coalescing.wait-timeout}")
+    private Duration waitTimeout;
+
+    // Only ends the windows, the calls themselves run on productDetailsCoalescingExecutor
+    private final ScheduledExecutorService windowTimer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "product-details-coalescer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Object lock = new Object();
+    private Batch currentBatch;
+    private boolean shutdown;
+
+    // Batches sent and not answered yet, failed on shutdown so no caller is left waiting
+    private final Set<Batch> sentBatches = ConcurrentHashMap.newKeySet();
+
+
+    public ProductDetailsDTO[] getProductDetails(List<Long> productIds) throws ProductServiceUnavailableException {
+        // Requests bigger than a batch gain nothing from waiting
+        if (!enabled || productIds.size() >= maxBatchSize) {
+            return productServiceClient.getProductDetails(productIds);
+        }
+
+        Batch batch = join(productIds);
+        if (batch == null) {
+            return productServiceClient.getProductDetails(productIds);
+        }
+        pipelineMetrics.increment(PipelineMetrics.PRODUCT_DETAILS + ".coalescing.requests");
+
+        try {
+            return select(batch.products.get(waitTimeout.toNanos(), TimeUnit.NANOSECONDS), productIds);
+
+        } catch (TimeoutException e) {
+            pipelineMetrics.increment(PipelineMetrics.PRODUCT_DETAILS + ".coalescing.timeouts");
+            throw new ProductServiceUnavailableException("Product service is unavailable, try again later.");
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ProductServiceUnavailableException("Product service is unavailable, try again later.");
+
+        } catch (ExecutionException e) {
+            // A product-service error for an id of another caller shouldn't fail this one, its own ids are requested alone
+            if (e.getCause() instanceof HttpClientErrorException && batch.requests > 1) {
+                return productServiceClient.getProductDetails(productIds);
+            }
+            if (e.getCause() instanceof ProductServiceUnavailableException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+
+        }
+    }
+
+    // Adds the ids to the open batch, a full batch is sent right away and a new one is opened. Null once shut down
+    private Batch join(List<Long> productIds) {
+        Batch full = null;
+        Batch batch;
+
+        synchronized (lock) {
+            if (shutdown) {
+                return null;
+            }
+
+            if (currentBatch != null && currentBatch.productIds.size() + productIds.size() > maxBatchSize) {
+                full = close(currentBatch);
+            }
+
+            if (currentBatch == null) {
+                Batch opened = new Batch();
+                currentBatch = opened;
+                windowTimer.schedule(() -> send(closeIfOpen(opened)), window.toNanos(), TimeUnit.NANOSECONDS);
+            }
+
+            batch = currentBatch;
+            batch.productIds.addAll(productIds);
+            batch.requests++;
+        }
+
+        send(full);
+        return batch;
+    }
+
+    private Batch closeIfOpen(Batch batch) {
+        synchronized (lock) {
+            return batch.sent ? null : close(batch);
+        }
+    }
+
+    // Must be called holding the lock
+    private Batch close(Batch batch) {
+        batch.sent = true;
+        if (currentBatch == batch) {
+            currentBatch = null;
+        }
+        return batch;
+    }
+
+    private void send(Batch batch) {
+        if (batch == null) {
+            return;
+        }
+
+        pipelineMetrics.increment(PipelineMetrics.PRODUCT_DETAILS + ".coalescing.calls");
+        pipelineMetrics.record(PipelineMetrics.PRODUCT_DETAILS + ".coalescing.batch-requests", batch.requests);
+
+        sentBatches.add(batch);
+        batch.products.whenComplete((products, e) -> sentBatches.remove(batch));
+
+        try {
+            productDetailsCoalescingExecutor.execute(() -> {
+                try {
+                    ProductDetailsDTO[] products = productServiceClient.getProductDetails(new ArrayList<>(batch.productIds));
+                    Map<Long, ProductDetailsDTO> productsById = new HashMap<>();
+                    if (products != null) {
+                        for (ProductDetailsDTO product : products) {
+                            productsById.put(product.getId(), product);
+                        }
+                    }
+                    batch.products.complete(productsById);
+
+                } catch (Throwable e) {
+                    batch.products.completeExceptionally(e);
+
+                }
+            });
+
+        } catch (TaskRejectedException e) {
+            // Too many merged calls waiting on product-service already
+            batch.products.completeExceptionally(new ProductServiceUnavailableException("Product service is unavailable, try again later."));
+
+        }
+    }
+
+    private static ProductDetailsDTO[] select(Map<Long, ProductDetailsDTO> productsById, List<Long> productIds) {
+        List<ProductDetailsDTO> products = new ArrayList<>(productIds.size());
+        for (Long productId : productIds) {
+            ProductDetailsDTO product = productsById.get(productId);
+            if (product != null) {
+                products.add(product);
+            }
+        }
+        return products.toArray(ProductDetailsDTO[]::new);
+    }
+
+    // The open batch and the ones still waiting on product-service are failed, later calls go straight to product-service
+    @PreDestroy
+    public void shutdown() {
+        Batch open;
+        synchronized (lock) {
+            shutdown = true;
+            open = currentBatch == null ? null : close(currentBatch);
+        }
+        windowTimer.shutdownNow();
+
+        ProductServiceUnavailableException stopped = new ProductServiceUnavailableException("Product service is unavailable, the service is stopping.");
+        if (open != null) {
+            open.products.completeExceptionally(stopped);
+        }
+        for (Batch batch : sentBatches) {
+            batch.products.completeExceptionally(stopped);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.order_service.services.Product;
+
+import com.example.order_service.dtos.ProductDetailsDTO;
+
+// Open addressing map keyed by the primitive product id, built once per product-service response
+public class ProductDetailsIndex {
+
+    private long[] keys;
+    private ProductDetailsDTO[] values;
+    private int mask;
+    private int size;
+    private boolean partial;
+
+    public ProductDetailsIndex(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    public void put(ProductDetailsDTO product) {
+        if (product == null || product.getId() == null) {
+            return;
+        }
+
+        // Keeps the load factor under 0.5 so probe chains stay short
+        if ((size + 1) * 2 > values.length) {
+            rehash(values.length * 2);
+        }
+
+        long key = product.getId();
+        int slot = slotOf(key);
+
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                values[slot] = product;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        keys[slot] = key;
+        values[slot] = product;
+        size++;
+    }
+
+    // Returns the product with the given id or null if product-service didn't return it
+    public ProductDetailsDTO get(long productId) {
+        int slot = slotOf(productId);
+
+        while (values[slot] != null) {
+            if (keys[slot] == productId) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Marks that product-service couldn't be reached, so missing products may exist but weren't retrieved
+    public void markPartial() {
+        partial = true;
+    }
+
+    public boolean isPartial() {
+        return partial;
+    }
+
+    private int slotOf(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        ProductDetailsDTO[] oldValues = values;
+
+        allocate(capacity);
+        size = 0;
+
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                put(oldValues[i]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new ProductDetailsDTO[capacity];
+        mask = capacity - 1;
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        int capacity = 2;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
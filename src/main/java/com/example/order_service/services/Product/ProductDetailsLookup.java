@@ -0,0 +1,80 @@
+package com.example.order_service.services.Product;
+
+import com.example.order_service.config.PipelineMetrics;
+import com.example.order_service.dtos.ProductDetailsDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+// Steps of a product details lookup shared by ProductServiceImpl (RestTemplate) and the reactive client (WebClient), only the
+// call to product-service differs: cached products first, the missing ids split in chunks and the responses merged into the
+// index and the cache, or a partial index when product-service can't be reached
+@Component
+public class ProductDetailsLookup {
+
+    @Autowired
+    private ProductDetailsCache productDetailsCache;
+
+    @Autowired
+    private PipelineMetrics pipelineMetrics;
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductDetailsLookup.class);
+
+    // Max amount of product ids sent to product-service in a single /details call
+    private static final int PRODUCT_DETAILS_BATCH_SIZE = 500;
+
+
+    // Index with the cached products, the ids not in the cache are added to missingIds
+    public ProductDetailsIndex readCached(Collection<Long> productIds, List<Long> missingIds) {
+        ProductDetailsIndex productDetails = new ProductDetailsIndex(productIds.size());
+
+        for (Long productId : productIds) {
+            ProductDetailsDTO product = productDetailsCache.get(productId);
+
+            if (product != null) {
+                productDetails.put(product);
+            } else {
+                missingIds.add(productId);
+            }
+        }
+
+        pipelineMetrics.increment(PipelineMetrics.PRODUCT_DETAILS + ".cached", productIds.size() - missingIds.size(), "result", "hit");
+        pipelineMetrics.increment(PipelineMetrics.PRODUCT_DETAILS + ".cached", missingIds.size(), "result", "miss");
+        return productDetails;
+    }
+
+    public static List<List<Long>> chunks(Collection<Long> productIds) {
+        List<Long> ids = new ArrayList<>(productIds);
+        List<List<Long>> chunks = new ArrayList<>();
+
+        for (int from = 0; from < ids.size(); from += PRODUCT_DETAILS_BATCH_SIZE) {
+            chunks.add(ids.subList(from, Math.min(from + PRODUCT_DETAILS_BATCH_SIZE, ids.size())));
+        }
+        return chunks;
+    }
+
+    // The index isn't thread safe, responses received concurrently are merged one at a time
+    public void merge(ProductDetailsDTO[] products, ProductDetailsIndex productDetails) {
+        if (products == null) {
+            return;
+        }
+
+        for (ProductDetailsDTO product : products) {
+            productDetails.put(product);
+            productDetailsCache.put(product);
+        }
+    }
+
+    // Product-service is down or slow, the cached products are served and the rest are returned without name and price
+    public ProductDetailsIndex servePartial(ProductDetailsIndex productDetails, Throwable e) {
+        logger.warn("Product details unavailable, serving {} cached products: {}", productDetails.size(), e.getMessage());
+        productDetails.markPartial();
+        pipelineMetrics.increment(PipelineMetrics.PRODUCT_DETAILS + ".partial");
+        return productDetails;
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.order_service.services.Product;
+
+import com.example.order_service.dtos.OrderItemLine;
+import com.example.order_service.dtos.ProductCacheStatsDTO;
+import com.example.order_service.dtos.UserOrderItemDTO;
+import com.example.order_service.exceptions.ProductServiceUnavailableException;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+@Service
+public interface ProductService {
+
+    ProductDetailsIndex getProductDetails(Collection<Long> productIds) throws ProductServiceUnavailableException;
+    ProductDetailsIndex getCachedProductDetails(Collection<Long> productIds);
+    CompletableFuture<ProductDetailsIndex> getCachedProductDetailsAsync(Collection<Long> productIds);
+
+    List<UserOrderItemDTO> toUserOrderItems(List<OrderItemLine> orderItems, ProductDetailsIndex productDetails);
+
+    ProductCacheStatsDTO getCacheStats();
+    void invalidateCachedProduct(Long productId);
+    void invalidateCachedProducts();
+}
@@ -0,0 +1,69 @@
+package com.example.order_service.services.Product;
+
+import com.example.order_service.dtos.ProductDetailsDTO;
+import com.example.order_service.dtos.ReduceStockRequest;
+import com.example.order_service.exceptions.ProductServiceUnavailableException;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+// Every http call to product-service goes through here, guarded by the "productService" circuit breaker and bulkhead
+@Component
+public class ProductServiceClient {
+
+    @Autowired
+    private RestTemplate restTemplate;
+
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductServiceClient.class);
+
+    private static final String PRODUCT_SERVICE = "productService";
+    private static final String PRODUCT_SERVICE_URL = "http://product-service/api/product";
+
+    public ProductServiceClient(CircuitBreakerRegistry circuitBreakerRegistry, BulkheadRegistry bulkheadRegistry) {
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker(PRODUCT_SERVICE);
+        this.bulkhead = bulkheadRegistry.bulkhead(PRODUCT_SERVICE);
+    }
+
+    public ProductDetailsDTO[] getProductDetails(List<Long> productIds) throws ProductServiceUnavailableException {
+        return call(() -> restTemplate.postForEntity(
+                PRODUCT_SERVICE_URL + "/details",
+                productIds,
+                ProductDetailsDTO[].class
+        ).getBody());
+    }
+
+    public void reduceStock(ReduceStockRequest request) throws ProductServiceUnavailableException {
+        call(() -> {
+            restTemplate.put(PRODUCT_SERVICE_URL + "/reduce-stock", request);
+            return null;
+        });
+    }
+
+    // Rejects the call right away when product-service keeps failing (open circuit) or too many calls are already waiting on it (full bulkhead)
+    private <T> T call(Supplier<T> request) throws ProductServiceUnavailableException {
+        Supplier<T> decorated = Bulkhead.decorateSupplier(bulkhead, CircuitBreaker.decorateSupplier(circuitBreaker, request));
+
+        try {
+            return decorated.get();
+
+        } catch (CallNotPermittedException | BulkheadFullException e) {
+            logger.warn("Call to product-service rejected: {}", e.getMessage());
+            throw new ProductServiceUnavailableException("Product service is unavailable, try again later.");
+
+        }
+    }
+}
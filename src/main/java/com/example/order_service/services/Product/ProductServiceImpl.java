@@ -0,0 +1,201 @@
+package com.example.order_service.services.Product;
+
+import com.example.order_service.config.PipelineMetrics;
+import com.example.order_service.dtos.OrderItemLine;
+import com.example.order_service.dtos.ProductCacheStatsDTO;
+import com.example.order_service.dtos.ProductDetailsDTO;
+import com.example.order_service.dtos.UserOrderItemDTO;
+import com.example.order_service.exceptions.ProductServiceUnavailableException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+@Service
+public class ProductServiceImpl implements ProductService {
+
+    @Autowired
+    private ProductDetailsCoalescer productDetailsCoalescer;
+
+    @Autowired
+    private ProductDetailsCache productDetailsCache;
+
+    @Autowired
+    private ProductDetailsLookup productDetailsLookup;
+
+    @Autowired
+    private AsyncTaskExecutor productServiceExecutor;
+
+    @Autowired
+    private PipelineMetrics pipelineMetrics;
+
+    @Value("${order.pipeline.parallel}")
+    private boolean parallelPipeline;
+
+
+    // Retrives the live product details (stock included) from product-service and refreshes the cache with them
+    @Override
+    public ProductDetailsIndex getProductDetails(Collection<Long> productIds) throws ProductServiceUnavailableException {
+
+        ProductDetailsIndex productDetails = new ProductDetailsIndex(productIds.size());
+        pipelineMetrics.time(PipelineMetrics.PRODUCT_DETAILS, () -> fetchProductDetails(productIds, productDetails), "source", "live");
+        return productDetails;
+    }
+
+
+    // Retrives product names and prices from the cache, only the missing ids are requested to product-service
+    @Override
+    public ProductDetailsIndex getCachedProductDetails(Collection<Long> productIds) {
+
+        List<Long> missingIds = new ArrayList<>();
+        ProductDetailsIndex productDetails = productDetailsLookup.readCached(productIds, missingIds);
+
+        if (!missingIds.isEmpty()) {
+            try {
+                pipelineMetrics.time(PipelineMetrics.PRODUCT_DETAILS, () -> fetchProductDetails(missingIds, productDetails), "source", "cache-miss");
+
+            } catch (ProductServiceUnavailableException | ResourceAccessException | HttpServerErrorException e) {
+                productDetailsLookup.servePartial(productDetails, e);
+
+            }
+        }
+
+        return productDetails;
+    }
+
+    // Same as getCachedProductDetails, but the missing ids are requested on productServiceExecutor so the caller can run
+    // another stage meanwhile. With order.pipeline.parallel=false the lookup runs on the calling thread
+    @Override
+    public CompletableFuture<ProductDetailsIndex> getCachedProductDetailsAsync(Collection<Long> productIds) {
+
+        if (!parallelPipeline) {
+            return CompletableFuture.completedFuture(getCachedProductDetails(productIds));
+        }
+
+        List<Long> missingIds = new ArrayList<>();
+        ProductDetailsIndex productDetails = productDetailsLookup.readCached(productIds, missingIds);
+
+        if (missingIds.isEmpty()) {
+            return CompletableFuture.completedFuture(productDetails);
+        }
+
+        return requestChunks(ProductDetailsLookup.chunks(missingIds), productDetails)
+                .exceptionally(e -> {
+                    Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+                    if (cause instanceof ProductServiceUnavailableException || cause instanceof ResourceAccessException
+                            || cause instanceof HttpServerErrorException) {
+                        return productDetailsLookup.servePartial(productDetails, cause);
+                    }
+                    throw e instanceof CompletionException completionException ? completionException : new CompletionException(cause);
+                });
+    }
+
+    // Calls product-service splitting the ids in chunks, results are added to the index and the cache
+    private void fetchProductDetails(Collection<Long> productIds, ProductDetailsIndex productDetails) throws ProductServiceUnavailableException {
+
+        List<List<Long>> chunks = ProductDetailsLookup.chunks(productIds);
+
+        // A single chunk is requested on the calling thread, more than one are requested concurrently
+        if (chunks.size() == 1 || !parallelPipeline) {
+            for (List<Long> chunk : chunks) {
+                productDetailsLookup.merge(productDetailsCoalescer.getProductDetails(chunk), productDetails);
+            }
+            return;
+        }
+
+        try {
+            requestChunks(chunks, productDetails).join();
+
+        } catch (CompletionException e) {
+            // Rethrows the original error so callers can still handle product-service responses like 404
+            if (e.getCause() instanceof ProductServiceUnavailableException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    // Every chunk is requested on productServiceExecutor, the responses are merged once all of them arrived.
+    // The tasks only wait on product-service (or the coalescer pool), never on other productServiceExecutor tasks
+    private CompletableFuture<ProductDetailsIndex> requestChunks(List<List<Long>> chunks, ProductDetailsIndex productDetails) {
+
+        List<CompletableFuture<ProductDetailsDTO[]>> responses = chunks.stream()
+                .map(chunk -> CompletableFuture.supplyAsync(() -> requestProductDetails(chunk), productServiceExecutor))
+                .toList();
+
+        return CompletableFuture.allOf(responses.toArray(CompletableFuture[]::new))
+                .thenApply(done -> {
+                    for (CompletableFuture<ProductDetailsDTO[]> response : responses) {
+                        productDetailsLookup.merge(response.join(), productDetails);
+                    }
+                    return productDetails;
+                });
+    }
+
+    private ProductDetailsDTO[] requestProductDetails(List<Long> productIds) {
+        try {
+            return productDetailsCoalescer.getProductDetails(productIds);
+        } catch (ProductServiceUnavailableException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    // Maps the items of an order to UserOrderItemDTO using the already fetched product details
+    @Override
+    public List<UserOrderItemDTO> toUserOrderItems(List<OrderItemLine> orderItems, ProductDetailsIndex productDetails) {
+
+        List<UserOrderItemDTO> userOrderItems = new ArrayList<>(orderItems.size());
+
+        for (OrderItemLine orderItem : orderItems) {
+            // Items store the name and price they were sold with, only older items need the product details
+            if (orderItem.hasProductSnapshot()) {
+                userOrderItems.add(new UserOrderItemDTO(orderItem.productId(), orderItem.productName(), orderItem.unitPrice(), orderItem.quantity()));
+                continue;
+            }
+
+            ProductDetailsDTO product = productDetails.get(orderItem.productId());
+
+            if (product == null && productDetails.isPartial()) {
+                userOrderItems.add(new UserOrderItemDTO(orderItem.productId(), null, null, orderItem.quantity()));
+                continue;
+            }
+
+            if (product == null) {
+                throw new RuntimeException("Product not found for ID: " + orderItem.productId());
+            }
+
+            userOrderItems.add(new UserOrderItemDTO(orderItem.productId(), product.getName(), product.getProductprice(), orderItem.quantity()));
+        }
+
+        return userOrderItems;
+    }
+
+
+    @Override
+    public ProductCacheStatsDTO getCacheStats() {
+        return new ProductCacheStatsDTO(productDetailsCache.size(), productDetailsCache.stats());
+    }
+
+
+    @Override
+    public void invalidateCachedProduct(Long productId) {
+        productDetailsCache.invalidate(productId);
+    }
+
+
+    @Override
+    public void invalidateCachedProducts() {
+        productDetailsCache.invalidateAll();
+    }
+}
@@ -0,0 +1,6 @@
+package com.example.order_service.services.Stock;
+
+import java.util.Map;
+
+// Units of every product reserved for one order, expiresAt is the epoch millis when they're released if not confirmed
+public record StockHold(long id, Map<Long, Integer> quantities, long expiresAt) { }
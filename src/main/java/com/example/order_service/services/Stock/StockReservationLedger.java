@@ -0,0 +1,179 @@
+package com.example.order_service.services.Stock;
+
+import com.example.order_service.exceptions.StockException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// In-memory stock of the products being sold. Every product has its own entry in a ConcurrentHashMap, so checkouts of
+// different products never contend, and a reservation is a compare-and-set on the entry instead of two calls to product-service.
+// Confirmed units stay reserved until StockReservationServiceImpl reduces them in product-service, from the stock_reduction rows
+// committed with the orders
+@Component
+public class StockReservationLedger {
+
+    // Stock of a product: the last stock read from product-service and the units reserved against it that weren't reduced there yet
+    private static final class StockEntry {
+
+        // Only written by the reconciling thread
+        private volatile int remoteStock;
+        private volatile long refreshedAt;
+        private final AtomicInteger reserved = new AtomicInteger();
+
+        private StockEntry(int remoteStock, long refreshedAt) {
+            this.remoteStock = remoteStock;
+            this.refreshedAt = refreshedAt;
+        }
+
+        private boolean tryReserve(int quantity) {
+            while (true) {
+                int current = reserved.get();
+                if (remoteStock - current < quantity) {
+                    return false;
+                }
+                if (reserved.compareAndSet(current, current + quantity)) {
+                    return true;
+                }
+            }
+        }
+
+        private int available() {
+            return remoteStock - reserved.get();
+        }
+    }
+
+    private final ConcurrentHashMap<Long, StockEntry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, StockHold> holds = new ConcurrentHashMap<>();
+
+    private final AtomicLong holdIds = new AtomicLong();
+
+
+    public List<Long> findMissing(Collection<Long> productIds) {
+        List<Long> missing = new ArrayList<>();
+        for (Long productId : productIds) {
+            if (!entries.containsKey(productId)) {
+                missing.add(productId);
+            }
+        }
+        return missing;
+    }
+
+    // Adds a product with the stock read from product-service and the units sold but not reduced there yet (pending reductions
+    // left by a previous run), an entry that's already there is kept
+    public void load(Long productId, int remoteStock, int unreduced, long now) {
+        StockEntry entry = new StockEntry(remoteStock, now);
+        entry.reserved.set(unreduced);
+        entries.putIfAbsent(productId, entry);
+    }
+
+    // Reserves every product of the order or none of them, the hold is released if it isn't confirmed before the ttl
+    public StockHold reserve(Map<Long, Integer> quantities, Duration ttl, long now) throws StockException {
+        List<Map.Entry<Long, Integer>> reservedLines = new ArrayList<>(quantities.size());
+
+        for (Map.Entry<Long, Integer> line : quantities.entrySet()) {
+            StockEntry entry = entries.get(line.getKey());
+
+            if (entry == null) {
+                releaseLines(reservedLines);
+                throw new StockException("Stock information not available for product with ID " + line.getKey());
+            }
+
+            if (!entry.tryReserve(line.getValue())) {
+                releaseLines(reservedLines);
+                throw new StockException("Not enough stock for product ID " + line.getKey() + ". Available: " + Math.max(entry.available(), 0) + ", Requested: " + line.getValue());
+            }
+
+            reservedLines.add(line);
+        }
+
+        StockHold hold = new StockHold(holdIds.incrementAndGet(), Map.copyOf(quantities), now + ttl.toMillis());
+        holds.put(hold.id(), hold);
+        return hold;
+    }
+
+    // The order was saved, the units stay reserved until they're reduced in product-service
+    public void confirm(StockHold hold) {
+        // A hold that expired was already released, its units are taken again even if that leaves the product without stock
+        if (holds.remove(hold.id()) == null) {
+            hold.quantities().forEach((productId, quantity) -> {
+                StockEntry entry = entries.get(productId);
+                if (entry != null) {
+                    entry.reserved.addAndGet(quantity);
+                }
+            });
+        }
+    }
+
+    // The order wasn't saved, the units are available again
+    public void release(StockHold hold) {
+        if (holds.remove(hold.id()) != null) {
+            releaseLines(hold.quantities().entrySet());
+        }
+    }
+
+    public int expire(long now) {
+        int expired = 0;
+        for (StockHold hold : holds.values()) {
+            if (hold.expiresAt() <= now && holds.remove(hold.id(), hold)) {
+                releaseLines(hold.quantities().entrySet());
+                expired++;
+            }
+        }
+        return expired;
+    }
+
+    // Product-service reduced the units, the stock is lowered before the reservation so available never grows meanwhile
+    public void reconciled(Map<Long, Integer> reduced) {
+        reduced.forEach((productId, quantity) -> {
+            StockEntry entry = entries.get(productId);
+            if (entry != null) {
+                entry.remoteStock -= quantity;
+                entry.reserved.addAndGet(-quantity);
+            }
+        });
+    }
+
+    public List<Long> findStale(long now, Duration refreshAfter) {
+        List<Long> stale = new ArrayList<>();
+        entries.forEach((productId, entry) -> {
+            if (now - entry.refreshedAt >= refreshAfter.toMillis()) {
+                stale.add(productId);
+            }
+        });
+        return stale;
+    }
+
+    // Stock read again from product-service, only called between reconciliations so it already includes every reduced unit
+    public void refresh(Long productId, int remoteStock, long now) {
+        StockEntry entry = entries.get(productId);
+        if (entry != null) {
+            entry.remoteStock = remoteStock;
+            entry.refreshedAt = now;
+        }
+    }
+
+    public Integer available(Long productId) {
+        StockEntry entry = entries.get(productId);
+        return entry == null ? null : entry.available();
+    }
+
+    public int activeHolds() {
+        return holds.size();
+    }
+
+    private void releaseLines(Collection<Map.Entry<Long, Integer>> lines) {
+        for (Map.Entry<Long, Integer> line : lines) {
+            StockEntry entry = entries.get(line.getKey());
+            if (entry != null) {
+                entry.reserved.addAndGet(-line.getValue());
+            }
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.order_service.services.Stock;
+
+import com.example.order_service.dtos.NewOrderItem;
+import com.example.order_service.exceptions.ProductServiceUnavailableException;
+import com.example.order_service.exceptions.StockException;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+@Service
+public interface StockReservationService {
+
+    boolean isEnabled();
+    StockHold reserve(List<NewOrderItem> orderItems) throws StockException, ProductServiceUnavailableException;
+    void recordReduction(StockHold hold, Long orderId);
+    void reconcile();
+    void checkSingleInstance();
+    void checkSingleInstanceOnStartup();
+}
@@ -0,0 +1,343 @@
+package com.example.order_service.services.Stock;
+
+import com.example.order_service.config.PipelineMetrics;
+import com.example.order_service.dtos.NewOrderItem;
+import com.example.order_service.dtos.ProductDetailsDTO;
+import com.example.order_service.dtos.ProductStockUpdate;
+import com.example.order_service.dtos.ReduceStockRequest;
+import com.example.order_service.exceptions.ProductServiceUnavailableException;
+import com.example.order_service.exceptions.StockException;
+import com.example.order_service.models.StockReductionEntity;
+import com.example.order_service.models.StockReductionStatus;
+import com.example.order_service.repositories.StockReductionRepository;
+import com.example.order_service.services.Product.ProductDetailsIndex;
+import com.example.order_service.services.Product.ProductService;
+import com.example.order_service.services.Product.ProductServiceClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.client.serviceregistry.Registration;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+@Service
+public class StockReservationServiceImpl implements StockReservationService {
+
+    @Autowired
+    private StockReservationLedger ledger;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductServiceClient productServiceClient;
+
+    @Autowired
+    private StockReductionRepository stockReductionRepository;
+
+    @Autowired
+    private PipelineMetrics pipelineMetrics;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private DiscoveryClient discoveryClient;
+
+    @Autowired
+    private ObjectProvider<Registration> registration;
+
+    @Value("${spring.application.name}")
+    private String serviceId;
+
+    @Value("${stock.reservation.enabled}")
+    private boolean enabled;
+
+    @Value("${stock.reservation.hold-ttl}")
+    private Duration holdTtl;
+
+    @Value("${stock.reservation.refresh-after}")
+    private Duration refreshAfter;
+
+    @Value("${stock.reservation.reconcile-batch-size}")
+    private int reconcileBatchSize;
+
+    private static final Logger logger = LoggerFactory.getLogger(StockReservationServiceImpl.class);
+
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+
+    // The ledger only counts the units this instance sold, another instance selling the same products would oversell them.
+    // Startup fails when another order-service instance is already registered
+    @Override
+    @EventListener(ApplicationReadyEvent.class)
+    public void checkSingleInstanceOnStartup() {
+        if (!enabled) {
+            return;
+        }
+
+        List<String> otherInstances = findOtherInstances();
+        if (!otherInstances.isEmpty()) {
+            throw new IllegalStateException("stock.reservation.enabled requires a single order-service instance, also running: " + otherInstances);
+        }
+    }
+
+
+    // Instances started later (or seen once the registry is fetched) can't be stopped from here, they're reported on every check
+    @Override
+    @Scheduled(fixedDelayString = "${stock.reservation.instance-check-interval}")
+    public void checkSingleInstance() {
+        if (!enabled) {
+            return;
+        }
+
+        List<String> otherInstances = findOtherInstances();
+        if (!otherInstances.isEmpty()) {
+            logger.error("Stock reservation ledger enabled with other order-service instances running {}, products can be oversold. " +
+                    "Disable stock.reservation.enabled or scale order-service down to one instance", otherInstances);
+            pipelineMetrics.increment("stock.reservation.other-instances");
+        }
+    }
+
+    private List<String> findOtherInstances() {
+        String instanceId = registration.getIfAvailable() == null ? null : registration.getIfAvailable().getInstanceId();
+        return discoveryClient.getInstances(serviceId).stream()
+                .filter(instance -> instance.getInstanceId() == null || !Objects.equals(instance.getInstanceId(), instanceId))
+                .map(instance -> instance.getInstanceId() != null ? instance.getInstanceId() : String.valueOf(instance.getUri()))
+                .toList();
+    }
+
+
+    // Reserves the order items in the ledger, product-service is only called for the products the ledger doesn't have yet.
+    // Inside a transaction the hold is confirmed when it commits and released when it rolls back
+    @Override
+    public StockHold reserve(List<NewOrderItem> orderItems) throws StockException, ProductServiceUnavailableException {
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        for (NewOrderItem item : orderItems) {
+            quantities.merge(item.productId(), item.quantity(), Integer::sum);
+        }
+
+        List<Long> missing = ledger.findMissing(quantities.keySet());
+        if (!missing.isEmpty()) {
+            ProductDetailsIndex productDetails = productService.getProductDetails(missing);
+
+            // Units sold before a restart that product-service hasn't reduced yet are still taken from its stock
+            Map<Long, Integer> unreduced = stockReductionRepository.sumQuantitiesByProductIds(missing).stream()
+                    .collect(Collectors.toMap(ProductStockUpdate::getProductId, ProductStockUpdate::getQuantity));
+
+            for (Long productId : missing) {
+                ProductDetailsDTO product = productDetails.get(productId);
+                if (product == null) {
+                    throw new StockException("Product not found for ID: " + productId);
+                }
+                ledger.load(productId, product.getStock() == null ? 0 : product.getStock(), unreduced.getOrDefault(productId, 0), System.currentTimeMillis());
+            }
+        }
+
+        StockHold hold;
+        try {
+            hold = ledger.reserve(quantities, holdTtl, System.currentTimeMillis());
+            pipelineMetrics.increment("stock.reservation", "result", "reserved");
+
+        } catch (StockException e) {
+            pipelineMetrics.increment("stock.reservation", "result", "rejected");
+            throw e;
+
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        ledger.confirm(hold);
+                    } else {
+                        ledger.release(hold);
+                    }
+                }
+            });
+        } else {
+            ledger.confirm(hold);
+        }
+
+        return hold;
+    }
+
+
+    // Stores the units of the hold as pending reductions in the transaction of the order, they're reduced in product-service
+    // by reconcile only if the order commits, and survive a restart
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordReduction(StockHold hold, Long orderId) {
+        stockReductionRepository.saveAll(hold.quantities().entrySet().stream()
+                .map(line -> new StockReductionEntity(orderId, line.getKey(), line.getValue()))
+                .toList());
+    }
+
+
+    // Releases the expired holds, sends the oldest pending reductions to product-service in one reduce-stock call and reads
+    // the stale stock again
+    @Override
+    @Scheduled(fixedDelayString = "${stock.reservation.reconcile-interval}")
+    public void reconcile() {
+        if (!enabled) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        int expired = ledger.expire(now);
+        if (expired > 0) {
+            logger.warn("Released {} stock holds not confirmed in {}", expired, holdTtl);
+            pipelineMetrics.increment("stock.reservation", expired, "result", "expired");
+        }
+
+        // Calls left without an answer (product-service down, rows not deleted, a restart) are sent again first, with the same
+        // key and rows, so product-service can tell they were already applied
+        Optional<StockReductionEntity> unanswered;
+        while ((unanswered = stockReductionRepository.findFirstByStatusOrderByIdAsc(StockReductionStatus.SENT)).isPresent()) {
+            String batchKey = unanswered.get().getBatchKey();
+            if (!reduceBatch(batchKey, stockReductionRepository.findByBatchKeyAndStatusOrderByIdAsc(batchKey, StockReductionStatus.SENT))) {
+                return;
+            }
+        }
+
+        List<StockReductionEntity> pending = stockReductionRepository.findByStatusOrderByIdAsc(StockReductionStatus.PENDING, Limit.of(reconcileBatchSize));
+        if (!pending.isEmpty()) {
+            String batchKey = UUID.randomUUID().toString();
+            transactionTemplate.executeWithoutResult(status -> stockReductionRepository.markSent(pending.stream().map(StockReductionEntity::getId).toList(), batchKey));
+            if (!reduceBatch(batchKey, pending)) {
+                return;
+            }
+        }
+
+        refreshStaleProducts(now);
+    }
+
+    // False when product-service didn't answer, the rows stay sent and go again with the same key on the next run
+    private boolean reduceBatch(String batchKey, List<StockReductionEntity> rows) {
+        Map<Long, List<StockReductionEntity>> reductions = rows.stream()
+                .collect(Collectors.groupingBy(StockReductionEntity::getProductId, LinkedHashMap::new, Collectors.toList()));
+
+        try {
+            reduce(batchKey, reductions);
+            return true;
+
+        } catch (Exception e) {
+            logger.warn("Stock reduction {} not answered, product-service unavailable: {}", batchKey, e.getMessage());
+            return false;
+
+        }
+    }
+
+    // When product-service refuses a batch the products are sent one by one, so only the ones it refuses are rejected.
+    // A refused call reduced nothing, every product gets its own new key before any of them is sent
+    private void reduce(String batchKey, Map<Long, List<StockReductionEntity>> reductions) throws ProductServiceUnavailableException {
+        try {
+            sendReduction(batchKey, reductions);
+
+        } catch (HttpClientErrorException e) {
+            if (reductions.size() == 1) {
+                reject(reductions.values().iterator().next(), e);
+                return;
+            }
+
+            logger.warn("Product-service rejected the reduction of {} products, reducing them one by one", reductions.size());
+            Map<Long, String> productKeys = new LinkedHashMap<>();
+            transactionTemplate.executeWithoutResult(status -> reductions.forEach((productId, rows) -> {
+                String productKey = UUID.randomUUID().toString();
+                stockReductionRepository.markSent(rows.stream().map(StockReductionEntity::getId).toList(), productKey);
+                productKeys.put(productId, productKey);
+            }));
+
+            for (Map.Entry<Long, List<StockReductionEntity>> reduction : reductions.entrySet()) {
+                reduce(productKeys.get(reduction.getKey()), Map.of(reduction.getKey(), reduction.getValue()));
+            }
+
+        }
+    }
+
+    // The rows are deleted after product-service answers. If that fails they're sent again with the same key, product-service
+    // has to reduce the stock only once per idempotencyKey
+    private void sendReduction(String batchKey, Map<Long, List<StockReductionEntity>> reductions) throws ProductServiceUnavailableException {
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        reductions.forEach((productId, rows) ->
+                quantities.put(productId, rows.stream().mapToInt(StockReductionEntity::getQuantity).sum()));
+
+        List<ProductStockUpdate> stockUpdates = quantities.entrySet().stream()
+                .map(entry -> new ProductStockUpdate(entry.getKey(), entry.getValue()))
+                .toList();
+
+        pipelineMetrics.time("stock.reservation.reconcile", () -> productServiceClient.reduceStock(new ReduceStockRequest(stockUpdates, batchKey)));
+
+        transactionTemplate.executeWithoutResult(status -> stockReductionRepository.deleteAllByIdInBatch(idsOf(reductions.values())));
+        ledger.reconciled(quantities);
+        logger.info("Stock reduced in product-service for {} products", quantities.size());
+    }
+
+    // The rows are kept as rejected with the product-service answer, and their units stay reserved in the ledger so the
+    // product isn't oversold until someone checks its stock
+    private void reject(List<StockReductionEntity> rows, HttpClientErrorException e) {
+        String detail = e.getStatusCode() + " " + e.getResponseBodyAsString();
+        List<Long> orderIds = rows.stream().map(StockReductionEntity::getOrderId).toList();
+
+        transactionTemplate.executeWithoutResult(status -> stockReductionRepository.updateStatus(idsOf(List.of(rows)),
+                StockReductionStatus.REJECTED, detail.length() > 255 ? detail.substring(0, 255) : detail));
+
+        logger.error("Product-service rejected the reduction of product {} for orders {}: {}", rows.get(0).getProductId(), orderIds, detail);
+        pipelineMetrics.increment("stock.reservation", rows.size(), "result", "reduction-rejected");
+    }
+
+    private static List<Long> idsOf(Collection<List<StockReductionEntity>> reductions) {
+        return reductions.stream()
+                .flatMap(List::stream)
+                .map(StockReductionEntity::getId)
+                .toList();
+    }
+
+    private void refreshStaleProducts(long now) {
+        List<Long> stale = ledger.findStale(now, refreshAfter);
+        if (stale.isEmpty()) {
+            return;
+        }
+
+        try {
+            ProductDetailsIndex productDetails = productService.getProductDetails(stale);
+            for (Long productId : stale) {
+                ProductDetailsDTO product = productDetails.get(productId);
+                if (product != null && product.getStock() != null) {
+                    ledger.refresh(productId, product.getStock(), now);
+                }
+            }
+
+        } catch (Exception e) {
+            logger.warn("Stock of {} products not refreshed: {}", stale.size(), e.getMessage());
+
+        }
+    }
+}
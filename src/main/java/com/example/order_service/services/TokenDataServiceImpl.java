@@ -1,5 +1,6 @@
 package com.example.order_service.services;
 
+import com.example.order_service.config.AuthenticatedUser;
 import com.example.order_service.config.JwtUtils;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,24 +16,33 @@ public class TokenDataServiceImpl {
         return request.getHeader("Authorization").substring(7);
     }
 
+    // Retrieves the user parsed by JwtAuthenticationFilter, or parses the token if the filter didn't run
+    public AuthenticatedUser getAuthenticatedUser(HttpServletRequest request){
+        AuthenticatedUser user = (AuthenticatedUser) request.getAttribute(AuthenticatedUser.REQUEST_ATTRIBUTE);
+
+        if (user == null) {
+            user = jwtUtils.extractAuthenticatedUser(extraerToken(request));
+            request.setAttribute(AuthenticatedUser.REQUEST_ATTRIBUTE, user);
+        }
+        return user;
+    }
+
     // Retrieves and returns email from the token
     public String getEmail(HttpServletRequest request){
-        String token = extraerToken(request);
-        String email = jwtUtils.extractUsername(token);
-        return email;
+        return getAuthenticatedUser(request).email();
     }
 
     // Retrieves and returns id from the token
     public Long getId(HttpServletRequest request){
-        String token = extraerToken(request);
-        Long id = jwtUtils.extractUserId(token);
+        Long id = getAuthenticatedUser(request).id();
+        if (id == null) {
+            throw new IllegalStateException("The token doesn't contain the user id.");
+        }
         return id;
     }
 
     // Retrieves and returns role from the token
     public String getRole(HttpServletRequest request){
-        String token = extraerToken(request);
-        String role = jwtUtils.extractUserRole(token);
-        return role;
+        return getAuthenticatedUser(request).role();
     }
 }
@@ -0,0 +1,41 @@
+-- Schema of the prod profile, written for PostgreSQL (and H2 in PostgreSQL mode)
+
+-- Sequences increment by 50, the allocationSize of the entities, so Hibernate can batch the inserts
+create sequence order_seq start with 1 increment by 50;
+create sequence order_item_seq start with 1 increment by 50;
+create sequence outbox_message_seq start with 1 increment by 50;
+
+create table order_entity (
+    id bigint not null,
+    user_id bigint,
+    order_total float(53),
+    status varchar(255),
+    status_detail varchar(255),
+    primary key (id)
+);
+
+create table order_item_entity (
+    id bigint not null,
+    order_id bigint not null,
+    product_id bigint,
+    quantity integer,
+    primary key (id),
+    constraint fk_order_item_order foreign key (order_id) references order_entity (id)
+);
+
+create table outbox_message_entity (
+    id bigint not null,
+    exchange varchar(255),
+    routing_key varchar(255),
+    message_id varchar(255),
+    payload text,
+    type_id varchar(255),
+    content_type varchar(255),
+    created_at timestamp(6) with time zone,
+    primary key (id)
+);
+
+-- The user orders are read by user ordered by id, items by order and the admin reports filter by status
+create index idx_order_user_id on order_entity (user_id, id);
+create index idx_order_status on order_entity (status);
+create index idx_order_item_order_id on order_item_entity (order_id);
@@ -0,0 +1,3 @@
+-- Name and price of the product when the order was created, older items keep them null and are completed from product-service
+alter table order_item_entity add column product_name varchar(255);
+alter table order_item_entity add column unit_price float(53);
@@ -0,0 +1,14 @@
+-- Responses of the requests sent with an Idempotency-Key, kept until order.idempotency.ttl so the retries get the same response
+create table idempotency_key_entity (
+    id varchar(255) not null,
+    request_hash varchar(255),
+    status_code integer,
+    location varchar(255),
+    content_type varchar(255),
+    response_body text,
+    created_at timestamp(6) with time zone,
+    primary key (id)
+);
+
+-- Expired keys are purged by creation time
+create index idx_idempotency_key_created_at on idempotency_key_entity (created_at);
@@ -0,0 +1,17 @@
+-- Units sold with the stock reservation ledger that product-service still has to reduce, written with the order
+create sequence stock_reduction_seq start with 1 increment by 50;
+
+create table stock_reduction_entity (
+    id bigint not null,
+    order_id bigint,
+    product_id bigint,
+    quantity integer,
+    status varchar(255),
+    status_detail varchar(255),
+    created_at timestamp(6) with time zone,
+    primary key (id)
+);
+
+-- Pending reductions are read oldest first, the ledger sums them by product when it loads a product
+create index idx_stock_reduction_status on stock_reduction_entity (status, id);
+create index idx_stock_reduction_product_id on stock_reduction_entity (product_id);
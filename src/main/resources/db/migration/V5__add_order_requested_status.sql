@@ -0,0 +1,3 @@
+-- Status sent by the client and email of the async orders, read again when an accepted order is recovered after a restart
+alter table order_entity add column requested_status varchar(255);
+alter table order_entity add column user_email varchar(255);
@@ -0,0 +1,2 @@
+-- Idempotency key of the reduce-stock call a reduction was sent in, the same call is sent again until product-service answers
+alter table stock_reduction_entity add column batch_key varchar(255);
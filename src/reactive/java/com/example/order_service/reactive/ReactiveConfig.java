@@ -0,0 +1,61 @@
+package com.example.order_service.reactive;
+
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.cloud.client.loadbalancer.LoadBalanced;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+
+// Only loaded when the app runs as a reactive web application (spring.main.web-application-type=reactive, set by the reactive profile)
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveConfig {
+
+    @Value("${product-service.http.connect-timeout}")
+    private Duration connectTimeout;
+
+    @Value("${product-service.http.read-timeout}")
+    private Duration readTimeout;
+
+    @Value("${product-service.http.connection-request-timeout}")
+    private Duration connectionRequestTimeout;
+
+    @Value("${product-service.http.idle-eviction}")
+    private Duration idleEviction;
+
+    @Value("${product-service.http.connection-ttl}")
+    private Duration connectionTtl;
+
+    // Netty instead of the Tomcat brought by spring-boot-starter-web, its event loops serve every request with a few threads
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    // Same pool limits and timeouts as the RestTemplate, product-service is resolved through Eureka
+    @Bean
+    @LoadBalanced
+    public WebClient.Builder loadBalancedWebClientBuilder(@Value("${product-service.http.max-connections}") int maxConnections) {
+        ConnectionProvider connectionProvider = ConnectionProvider.builder("product-service")
+                .maxConnections(maxConnections)
+                .pendingAcquireTimeout(connectionRequestTimeout)
+                .maxIdleTime(idleEviction)
+                .maxLifeTime(connectionTtl)
+                .metrics(true)
+                .build();
+
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .responseTimeout(readTimeout);
+
+        return WebClient.builder().clientConnector(new ReactorClientHttpConnector(httpClient));
+    }
+}
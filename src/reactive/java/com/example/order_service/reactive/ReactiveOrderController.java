@@ -0,0 +1,187 @@
+package com.example.order_service.reactive;
+
+import com.example.order_service.config.AuthenticatedUser;
+import com.example.order_service.config.JwtUtils;
+import com.example.order_service.dtos.IdempotentResponse;
+import com.example.order_service.dtos.NewOrder;
+import com.example.order_service.dtos.OrderDTO;
+import com.example.order_service.dtos.UpdateOrder;
+import com.example.order_service.exceptions.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.List;
+
+// Routes of OrderController served by WebFlux, with the same status codes and messages
+@RestController
+@RequestMapping("/api/order")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveOrderController {
+
+    @Autowired
+    private ReactiveOrderService orderService;
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    @Value("${order.async.enabled}")
+    private boolean asyncOrders;
+
+    @GetMapping("/")
+    public ResponseEntity<String> invalidPath() {
+        return ResponseEntity.badRequest().body("The url provided is invalid.");
+    }
+
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<Object>> getOrderById(@PathVariable Long id, ServerHttpRequest request) {
+        return authenticatedUser(request)
+                .flatMap(user -> !user.role().equals("ADMIN")
+                        ? Mono.just(response(HttpStatus.FORBIDDEN, "Forbidden: You cannot access this data."))
+                        : orderService.getOrderDTOById(id).map(order -> response(HttpStatus.OK, order)))
+                .onErrorResume(NoOrdersFoundException.class, e -> Mono.just(response(HttpStatus.NOT_FOUND, e.getMessage())))
+                .onErrorResume(e -> Mono.just(response(HttpStatus.INTERNAL_SERVER_ERROR, "An error occurred while searching the order data, try again later.")));
+    }
+
+    @GetMapping("/orders")
+    public Mono<ResponseEntity<Object>> getAllOrders(@RequestParam(required = false) Long after,
+                                                     @RequestParam(required = false) Integer page,
+                                                     @RequestParam(required = false) Integer size,
+                                                     ServerHttpRequest request) {
+        return authenticatedUser(request)
+                .flatMap(user -> !user.role().equals("ADMIN")
+                        ? Mono.just(response(HttpStatus.FORBIDDEN, "Forbidden: You cannot access this data."))
+                        : orderService.getAllOrders(after, page, size).map(orders -> response(HttpStatus.OK, orders)))
+                .onErrorResume(NoOrdersFoundException.class, e -> Mono.just(response(HttpStatus.NOT_FOUND, e.getMessage())))
+                .onErrorResume(e -> Mono.just(response(HttpStatus.INTERNAL_SERVER_ERROR, "An error occurred while fetching the orders, try again later.")));
+    }
+
+    // Each order is written as soon as its rows are read, the status can't change once the first one is sent
+    @GetMapping(value = "/orders/export", produces = "application/x-ndjson")
+    public Mono<ResponseEntity<Flux<OrderDTO>>> exportOrders(ServerHttpRequest request) {
+        return authenticatedUser(request)
+                .map(user -> user.role().equals("ADMIN")
+                        ? ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(orderService.exportOrders())
+                        : ResponseEntity.status(HttpStatus.FORBIDDEN).<Flux<OrderDTO>>build())
+                .onErrorResume(e -> Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build()));
+    }
+
+    @GetMapping("/orders/user/{userId}")
+    public Mono<ResponseEntity<Object>> getAllUserOrders(@PathVariable Long userId,
+                                                         @RequestParam(required = false) Long after,
+                                                         @RequestParam(required = false) Integer page,
+                                                         @RequestParam(required = false) Integer size,
+                                                         ServerHttpRequest request) {
+        return authenticatedUser(request)
+                .flatMap(user -> !user.role().equals("ADMIN")
+                        ? Mono.just(response(HttpStatus.FORBIDDEN, "Forbidden: You cannot access another user's data."))
+                        : orderService.getAllUserOrders(userId, user.email(), after, page, size).map(orders -> response(HttpStatus.OK, orders)))
+                .onErrorResume(NoOrdersFoundException.class, e -> Mono.just(response(HttpStatus.NOT_FOUND, e.getMessage())))
+                .onErrorResume(e -> Mono.just(response(HttpStatus.INTERNAL_SERVER_ERROR, "An error occurred while fetching the orders, try again later.")));
+    }
+
+    @GetMapping("/orders/user")
+    public Mono<ResponseEntity<Object>> getAllUserLoggedOrders(@RequestParam(required = false) Long after,
+                                                               @RequestParam(required = false) Integer page,
+                                                               @RequestParam(required = false) Integer size,
+                                                               ServerHttpRequest request) {
+        return authenticatedUser(request)
+                .flatMap(user -> orderService.getAllUserOrders(userId(user), user.email(), after, page, size).map(orders -> response(HttpStatus.OK, orders)))
+                .onErrorResume(NoOrdersFoundException.class, e -> Mono.just(response(HttpStatus.NOT_FOUND, e.getMessage())))
+                .onErrorResume(e -> Mono.just(response(HttpStatus.INTERNAL_SERVER_ERROR, "An error occurred while fetching the orders, try again later.")));
+    }
+
+    @PostMapping("/orders")
+    public Mono<ResponseEntity<Object>> createNewOrder(@RequestBody NewOrder newOrder,
+                                                       @RequestHeader(value = "Prefer", required = false) String prefer,
+                                                       @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+                                                       ServerHttpRequest request) {
+        boolean async = asyncOrders || "respond-async".equalsIgnoreCase(prefer);
+
+        return authenticatedUser(request)
+                .flatMap(user -> orderService.createNewOrder(newOrder, async, user.email(), userId(user), idempotencyKey))
+                .map(ReactiveOrderController::toResponseEntity)
+                .onErrorResume(e -> e instanceof UserIdNullException || e instanceof NoOrdersFoundException
+                                || e instanceof StockException || e instanceof StatusException,
+                        e -> Mono.just(response(HttpStatus.BAD_REQUEST, e.getMessage())))
+                .onErrorResume(IdempotencyKeyInProgressException.class,
+                        e -> Mono.just(ResponseEntity.status(HttpStatus.CONFLICT).header("Retry-After", "1").body(e.getMessage())))
+                .onErrorResume(IdempotencyKeyException.class, e -> Mono.just(response(HttpStatus.UNPROCESSABLE_ENTITY, e.getMessage())))
+                .onErrorResume(ProductServiceUnavailableException.class, e -> Mono.just(response(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage())))
+                .onErrorResume(OrderQueueFullException.class,
+                        e -> Mono.just(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header("Retry-After", "1").body(e.getMessage())))
+                .onErrorResume(e -> Mono.just(response(HttpStatus.INTERNAL_SERVER_ERROR, "An error occurred while creating the order, try again later.")));
+    }
+
+    @PostMapping("/orders/bulk")
+    public Mono<ResponseEntity<Object>> createNewOrders(@RequestBody List<NewOrder> newOrders, ServerHttpRequest request) {
+        return authenticatedUser(request)
+                .flatMap(user -> orderService.createNewOrders(newOrders, user.email(), userId(user)))
+                .map(results -> response(HttpStatus.OK, results))
+                .onErrorResume(e -> e instanceof NoOrdersFoundException || e instanceof StatusException,
+                        e -> Mono.just(response(HttpStatus.BAD_REQUEST, e.getMessage())))
+                .onErrorResume(ProductServiceUnavailableException.class, e -> Mono.just(response(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage())))
+                .onErrorResume(e -> Mono.just(response(HttpStatus.INTERNAL_SERVER_ERROR, "An error occurred while creating the orders, try again later.")));
+    }
+
+    @GetMapping("/orders/{id}/status")
+    public Mono<ResponseEntity<Object>> getOrderStatus(@PathVariable Long id, ServerHttpRequest request) {
+        return authenticatedUser(request)
+                .flatMap(user -> orderService.getOrderStatus(id).map(orderStatus ->
+                        !user.role().equals("ADMIN") && !orderStatus.userId().equals(userId(user))
+                                ? response(HttpStatus.FORBIDDEN, "Forbidden: You cannot access this data.")
+                                : response(HttpStatus.OK, orderStatus)))
+                .onErrorResume(NoOrdersFoundException.class, e -> Mono.just(response(HttpStatus.NOT_FOUND, e.getMessage())))
+                .onErrorResume(e -> Mono.just(response(HttpStatus.INTERNAL_SERVER_ERROR, "An error occurred while searching the order status, try again later.")));
+    }
+
+    @PutMapping("orders/{id}")
+    public Mono<ResponseEntity<Object>> updateOrderById(@RequestBody UpdateOrder updateOrder, @PathVariable Long id, ServerHttpRequest request) {
+        return authenticatedUser(request)
+                .flatMap(user -> !user.role().equals("ADMIN")
+                        ? Mono.just(response(HttpStatus.FORBIDDEN, "Forbidden: You cannot update this data."))
+                        : orderService.updateOrderById(updateOrder, id).map(order -> response(HttpStatus.CREATED, order)))
+                .onErrorResume(NoOrdersFoundException.class, e -> Mono.just(response(HttpStatus.NOT_FOUND, e.getMessage())))
+                .onErrorResume(StatusException.class, e -> Mono.just(response(HttpStatus.BAD_REQUEST, e.getMessage())))
+                .onErrorResume(e -> Mono.just(response(HttpStatus.INTERNAL_SERVER_ERROR, "An error occurred while updating the order, try again later.")));
+    }
+
+    // The token is parsed here instead of in JwtAuthenticationFilter, which is a servlet filter. Claims are cached by JwtUtils
+    private Mono<AuthenticatedUser> authenticatedUser(ServerHttpRequest request) {
+        return Mono.fromCallable(() -> jwtUtils.extractAuthenticatedUser(request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION).substring(7)));
+    }
+
+    private static Long userId(AuthenticatedUser user) {
+        if (user.id() == null) {
+            throw new IllegalStateException("The token doesn't contain the user id.");
+        }
+        return user.id();
+    }
+
+    private static ResponseEntity<Object> toResponseEntity(IdempotentResponse response) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(response.statusCode())
+                .contentType(MediaType.parseMediaType(response.contentType()));
+
+        if (response.location() != null) {
+            builder.location(URI.create(response.location()));
+        }
+        if (response.replayed()) {
+            builder.header("Idempotent-Replayed", "true");
+        }
+
+        return builder.body(response.body());
+    }
+
+    private static ResponseEntity<Object> response(HttpStatus status, Object body) {
+        return ResponseEntity.status(status).body(body);
+    }
+}
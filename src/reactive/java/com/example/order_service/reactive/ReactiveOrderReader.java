@@ -0,0 +1,148 @@
+package com.example.order_service.reactive;
+
+import com.example.order_service.dtos.OrderDTO;
+import com.example.order_service.dtos.OrderItemLine;
+import com.example.order_service.dtos.OrderStatusDTO;
+import com.example.order_service.dtos.OrderSummary;
+import com.example.order_service.dtos.PageDTO;
+import com.example.order_service.models.OrderStatus;
+import com.example.order_service.services.Order.OrderListing;
+import io.r2dbc.spi.Readable;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Reads the orders through R2DBC with the same queries as the OrderRepository projections, the listings are built with OrderListing
+// so both stacks return the same pages
+@Repository
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveOrderReader {
+
+    private static final String ORDER_COLUMNS = "select o.id, o.user_id, o.order_total, o.status from order_entity o";
+    private static final String ITEM_COLUMNS = "select i.order_id, i.id as item_id, i.product_id, i.quantity, i.product_name, i.unit_price from order_item_entity i";
+
+    private final DatabaseClient databaseClient;
+
+    public ReactiveOrderReader(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+
+    public Mono<OrderDTO> findOrder(Long id) {
+        return databaseClient.sql(ORDER_COLUMNS + " where o.id = :id")
+                .bind("id", id)
+                .map(ReactiveOrderReader::toOrderSummary)
+                .one()
+                .flatMap(order -> findItemLines(List.of(order.id()))
+                        .collectList()
+                        .map(items -> new OrderDTO(order, items)));
+    }
+
+    public Mono<OrderStatusDTO> findOrderStatus(Long id) {
+        return databaseClient.sql("select id, user_id, status, order_total, status_detail from order_entity where id = :id")
+                .bind("id", id)
+                .map(row -> new OrderStatusDTO(
+                        row.get("id", Long.class),
+                        row.get("user_id", Long.class),
+                        row.get("status", String.class),
+                        row.get("order_total", Double.class),
+                        row.get("status_detail", String.class)))
+                .one();
+    }
+
+    // A page of orders with their items, by cursor when "after" is sent and by page number otherwise, filtered by user when userId isn't null
+    public Mono<OrderListing> findOrderListing(Long userId, Long after, Integer page, Integer size) {
+        return findOrderPage(userId, after, page, size).flatMap(orders -> {
+            if (orders.getItems().isEmpty()) {
+                return Mono.just(OrderListing.of(orders, List.of()));
+            }
+
+            List<Long> orderIds = orders.getItems().stream().map(OrderSummary::id).toList();
+            return findItemLines(orderIds)
+                    .collectList()
+                    .map(items -> OrderListing.of(orders, items));
+        });
+    }
+
+    // Every order with its items in a single query, consecutive rows of the same order are grouped while they're read
+    public Flux<OrderDTO> streamOrders() {
+        return databaseClient.sql("select o.id, o.user_id, o.order_total, o.status, i.order_id, i.id as item_id, i.product_id, i.quantity, " +
+                        "i.product_name, i.unit_price from order_entity o left join order_item_entity i on i.order_id = o.id order by o.id, i.id")
+                .map(row -> new OrderRow(toOrderSummary(row), row.get("item_id", Long.class) == null ? null : toOrderItemLine(row)))
+                .all()
+                .bufferUntilChanged(row -> row.order().id())
+                .map(rows -> {
+                    List<OrderItemLine> items = new ArrayList<>(rows.size());
+                    for (OrderRow row : rows) {
+                        if (row.item() != null) {
+                            items.add(row.item());
+                        }
+                    }
+                    return new OrderDTO(rows.get(0).order(), items);
+                });
+    }
+
+    private record OrderRow(OrderSummary order, OrderItemLine item) { }
+
+    private Mono<PageDTO<OrderSummary>> findOrderPage(Long userId, Long after, Integer page, Integer size) {
+        int pageSize = OrderListing.pageSize(size);
+        Integer pageNumber = after == null ? OrderListing.pageNumber(page) : null;
+
+        StringBuilder sql = new StringBuilder(ORDER_COLUMNS).append(" where 1 = 1");
+        if (userId != null) {
+            sql.append(" and o.user_id = :userId");
+        }
+        if (after != null) {
+            sql.append(" and o.id > :after");
+        }
+        // Asks for one extra order to know if there's a next page
+        sql.append(" order by o.id limit :limit offset :offset");
+
+        DatabaseClient.GenericExecuteSpec query = databaseClient.sql(sql.toString())
+                .bind("limit", pageSize + 1)
+                .bind("offset", pageNumber == null ? 0L : (long) pageNumber * pageSize);
+
+        if (userId != null) {
+            query = query.bind("userId", userId);
+        }
+        if (after != null) {
+            query = query.bind("after", after);
+        }
+
+        return query.map(ReactiveOrderReader::toOrderSummary)
+                .all()
+                .collectList()
+                .map(orders -> OrderListing.page(orders, pageNumber, pageSize));
+    }
+
+    private Flux<OrderItemLine> findItemLines(List<Long> orderIds) {
+        return databaseClient.sql(ITEM_COLUMNS + " where i.order_id in (:orderIds) order by i.id")
+                .bind("orderIds", orderIds)
+                .map(ReactiveOrderReader::toOrderItemLine)
+                .all();
+    }
+
+    private static OrderSummary toOrderSummary(Readable row) {
+        String status = row.get("status", String.class);
+        return new OrderSummary(
+                row.get("id", Long.class),
+                row.get("user_id", Long.class),
+                row.get("order_total", Double.class),
+                status == null ? null : OrderStatus.valueOf(status));
+    }
+
+    private static OrderItemLine toOrderItemLine(Readable row) {
+        return new OrderItemLine(
+                row.get("order_id", Long.class),
+                row.get("item_id", Long.class),
+                row.get("product_id", Long.class),
+                row.get("quantity", Integer.class),
+                row.get("product_name", String.class),
+                row.get("unit_price", Double.class));
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.order_service.reactive;
+
+import com.example.order_service.dtos.BulkOrderResultDTO;
+import com.example.order_service.dtos.IdempotentResponse;
+import com.example.order_service.dtos.NewOrder;
+import com.example.order_service.dtos.OrderDTO;
+import com.example.order_service.dtos.OrderStatusDTO;
+import com.example.order_service.dtos.PageDTO;
+import com.example.order_service.dtos.UpdateOrder;
+import com.example.order_service.dtos.UserOrderDTO;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+@Service
+public interface ReactiveOrderService {
+
+    Mono<OrderDTO> getOrderDTOById(Long id);
+    Mono<PageDTO<OrderDTO>> getAllOrders(Long after, Integer page, Integer size);
+    Flux<OrderDTO> exportOrders();
+
+    Mono<PageDTO<UserOrderDTO>> getAllUserOrders(Long userId, String email, Long after, Integer page, Integer size);
+
+    Mono<IdempotentResponse> createNewOrder(NewOrder newOrder, boolean async, String userEmail, Long userId, String idempotencyKey);
+    Mono<List<BulkOrderResultDTO>> createNewOrders(List<NewOrder> newOrders, String userEmail, Long userId);
+    Mono<OrderStatusDTO> getOrderStatus(Long id);
+
+    Mono<OrderDTO> updateOrderById(UpdateOrder updateOrder, Long id);
+}
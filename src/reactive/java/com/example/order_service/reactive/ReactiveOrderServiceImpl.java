@@ -0,0 +1,120 @@
+package com.example.order_service.reactive;
+
+import com.example.order_service.dtos.BulkOrderResultDTO;
+import com.example.order_service.dtos.IdempotentResponse;
+import com.example.order_service.dtos.NewOrder;
+import com.example.order_service.dtos.OrderDTO;
+import com.example.order_service.dtos.OrderStatusDTO;
+import com.example.order_service.dtos.PageDTO;
+import com.example.order_service.dtos.UpdateOrder;
+import com.example.order_service.dtos.UserOrderDTO;
+import com.example.order_service.exceptions.NoOrdersFoundException;
+import com.example.order_service.services.Order.OrderCreationService;
+import com.example.order_service.services.Order.OrderListing;
+import com.example.order_service.services.Order.OrderService;
+import com.example.order_service.services.Product.ProductDetailsIndex;
+import com.example.order_service.services.Product.ProductService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+// Reads go through R2DBC and WebClient without blocking. Writes reuse OrderService and OrderCreationService (stock, outbox, idempotency keys)
+// on the boundedElastic scheduler, so the JPA transactions never run on the event loop
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveOrderServiceImpl implements ReactiveOrderService {
+
+    @Autowired
+    private ReactiveOrderReader orderReader;
+
+    @Autowired
+    private ReactiveProductServiceClient productServiceClient;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderCreationService orderCreationService;
+
+
+    @Override
+    public Mono<OrderDTO> getOrderDTOById(Long id) {
+        return orderReader.findOrder(id)
+                .switchIfEmpty(Mono.error(() -> new NoOrdersFoundException("Order with ID " + id + " not found.")));
+    }
+
+
+    @Override
+    public Mono<PageDTO<OrderDTO>> getAllOrders(Long after, Integer page, Integer size) {
+        return orderReader.findOrderListing(null, after, page, size).flatMap(listing -> {
+            if (listing.orders().getItems().isEmpty() && OrderListing.isFirstPage(after, page)) {
+                return Mono.error(new NoOrdersFoundException("No orders found."));
+            }
+            return Mono.just(listing.toOrderPage());
+        });
+    }
+
+
+    @Override
+    public Flux<OrderDTO> exportOrders() {
+        return orderReader.streamOrders();
+    }
+
+
+    @Override
+    public Mono<PageDTO<UserOrderDTO>> getAllUserOrders(Long userId, String email, Long after, Integer page, Integer size) {
+        return orderReader.findOrderListing(userId, after, page, size).flatMap(listing -> {
+            // Verifies if the user has orders
+            if (listing.orders().getItems().isEmpty() && OrderListing.isFirstPage(after, page)) {
+                return Mono.error(new NoOrdersFoundException("No orders found for user ID: " + userId));
+            }
+
+            Set<Long> productIds = listing.productIdsWithoutSnapshot();
+
+            Mono<ProductDetailsIndex> productDetails = productIds.isEmpty()
+                    ? Mono.just(new ProductDetailsIndex(0))
+                    : productServiceClient.getCachedProductDetails(productIds);
+
+            return productDetails.map(details -> listing.toUserOrderPage(email, productService, details));
+        });
+    }
+
+
+    @Override
+    public Mono<IdempotentResponse> createNewOrder(NewOrder newOrder, boolean async, String userEmail, Long userId, String idempotencyKey) {
+        return blocking(() -> orderCreationService.createOrder(newOrder, async, userEmail, userId, idempotencyKey));
+    }
+
+
+    @Override
+    public Mono<List<BulkOrderResultDTO>> createNewOrders(List<NewOrder> newOrders, String userEmail, Long userId) {
+        return blocking(() -> orderService.createNewOrders(newOrders, userEmail, userId));
+    }
+
+
+    @Override
+    public Mono<OrderStatusDTO> getOrderStatus(Long id) {
+        return orderReader.findOrderStatus(id)
+                .switchIfEmpty(Mono.error(() -> new NoOrdersFoundException("Order with ID " + id + " not found.")));
+    }
+
+
+    @Override
+    public Mono<OrderDTO> updateOrderById(UpdateOrder updateOrder, Long id) {
+        return blocking(() -> orderService.updateOrderById(updateOrder, id));
+    }
+
+    private static <T> Mono<T> blocking(Callable<T> call) {
+        return Mono.fromCallable(call).subscribeOn(Schedulers.boundedElastic());
+    }
+}
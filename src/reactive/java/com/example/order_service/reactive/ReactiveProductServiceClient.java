@@ -0,0 +1,88 @@
+package com.example.order_service.reactive;
+
+import com.example.order_service.dtos.ProductDetailsDTO;
+import com.example.order_service.services.Product.ProductDetailsIndex;
+import com.example.order_service.services.Product.ProductDetailsLookup;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+// Non-blocking version of the product-service /details call, guarded by the same "productService" circuit breaker and bulkhead.
+// The cache, the chunks and the partial results are handled by ProductDetailsLookup as in ProductServiceImpl
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveProductServiceClient {
+
+    private final WebClient webClient;
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+    private final ProductDetailsLookup productDetailsLookup;
+
+    private static final String PRODUCT_SERVICE = "productService";
+    private static final String PRODUCT_SERVICE_URL = "http://product-service/api/product";
+
+    public ReactiveProductServiceClient(WebClient.Builder loadBalancedWebClientBuilder,
+                                        CircuitBreakerRegistry circuitBreakerRegistry,
+                                        BulkheadRegistry bulkheadRegistry,
+                                        ProductDetailsLookup productDetailsLookup) {
+        this.webClient = loadBalancedWebClientBuilder.baseUrl(PRODUCT_SERVICE_URL).build();
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker(PRODUCT_SERVICE);
+        this.bulkhead = bulkheadRegistry.bulkhead(PRODUCT_SERVICE);
+        this.productDetailsLookup = productDetailsLookup;
+    }
+
+    // Same as ProductServiceImpl.getCachedProductDetails, the chunks of missing ids are requested concurrently
+    public Mono<ProductDetailsIndex> getCachedProductDetails(Collection<Long> productIds) {
+
+        List<Long> missingIds = new ArrayList<>();
+        ProductDetailsIndex productDetails = productDetailsLookup.readCached(productIds, missingIds);
+
+        if (missingIds.isEmpty()) {
+            return Mono.just(productDetails);
+        }
+
+        return Flux.fromIterable(ProductDetailsLookup.chunks(missingIds))
+                .flatMap(this::getProductDetails)
+                .collectList()
+                .map(responses -> {
+                    responses.forEach(products -> productDetailsLookup.merge(products, productDetails));
+                    return productDetails;
+                })
+                .onErrorResume(ReactiveProductServiceClient::isUnavailable, e -> Mono.just(productDetailsLookup.servePartial(productDetails, e)));
+    }
+
+    private Mono<ProductDetailsDTO[]> getProductDetails(List<Long> productIds) {
+        return webClient.post()
+                .uri("/details")
+                .bodyValue(productIds)
+                .retrieve()
+                .bodyToMono(ProductDetailsDTO[].class)
+                .defaultIfEmpty(new ProductDetailsDTO[0])
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .transformDeferred(BulkheadOperator.of(bulkhead));
+    }
+
+    // Product-service is down, slow or rejected by the circuit breaker or the bulkhead, 4xx responses are still errors
+    private static boolean isUnavailable(Throwable e) {
+        return e instanceof CallNotPermittedException
+                || e instanceof BulkheadFullException
+                || e instanceof WebClientRequestException
+                || e instanceof WebClientResponseException response && response.getStatusCode().is5xxServerError();
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.order_service.benchmarks;
+
+import com.example.order_service.dtos.OrderEmailDTO;
+import com.example.order_service.dtos.UserOrderDTO;
+import com.example.order_service.dtos.UserOrderItemDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Serialization of the "my orders" response (a page of 50 orders) and of the order email message
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class JsonSerializationBenchmark {
+
+	private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+	private List<UserOrderDTO> userOrders;
+	private OrderEmailDTO orderEmail;
+
+	@Setup
+	public void setUp() {
+		userOrders = new ArrayList<>();
+		for (long orderId = 1; orderId <= 50; orderId++) {
+			List<UserOrderItemDTO> items = new ArrayList<>();
+			for (long productId = 1; productId <= 5; productId++) {
+				items.add(new UserOrderItemDTO(productId, "Product " + productId, 10.5 * productId, 2));
+			}
+			userOrders.add(new UserOrderDTO(orderId, "user@mail.com", 315.0, "PENDING", items));
+		}
+
+		List<OrderEmailDTO.OrderItemEmailDTO> emailItems = new ArrayList<>();
+		for (long productId = 1; productId <= 20; productId++) {
+			emailItems.add(new OrderEmailDTO.OrderItemEmailDTO(productId, "Product " + productId, 10.5 * productId, 2));
+		}
+		orderEmail = new OrderEmailDTO(1L, "user@mail.com", 4410.0, emailItems);
+	}
+
+	@Benchmark
+	public byte[] serializeUserOrders() throws JsonProcessingException {
+		return objectMapper.writeValueAsBytes(userOrders);
+	}
+
+	@Benchmark
+	public byte[] serializeOrderEmail() throws JsonProcessingException {
+		return objectMapper.writeValueAsBytes(orderEmail);
+	}
+}
@@ -0,0 +1,52 @@
+package com.example.order_service.benchmarks;
+
+import com.example.order_service.config.AuthenticatedUser;
+import com.example.order_service.config.JwtUtils;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+// Extraction of the user data from a token, with and without the claims cache
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class JwtParsingBenchmark {
+
+	private static final String SECRET = "YWFhYWFhYWFhYWFhYWFhYWFhYWFhYWFhYWFhYWFhYWFhYWFhYWFhYWFhYWFhYWFh";
+
+	@Param({"false", "true"})
+	private boolean claimsCache;
+
+	private JwtUtils jwtUtils;
+	private String token;
+
+	@Setup
+	public void setUp() {
+		jwtUtils = new JwtUtils(SECRET, claimsCache, 10_000);
+		token = Jwts.builder()
+				.subject("user@mail.com")
+				.claim("id", "1")
+				.claim("role", "CLIENT")
+				.issuedAt(new Date())
+				.expiration(new Date(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1)))
+				.signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET)))
+				.compact();
+	}
+
+	@Benchmark
+	public Object parseClaims() {
+		return jwtUtils.parseClaims(token);
+	}
+
+	@Benchmark
+	public AuthenticatedUser extractAuthenticatedUser() {
+		return jwtUtils.extractAuthenticatedUser(token);
+	}
+}
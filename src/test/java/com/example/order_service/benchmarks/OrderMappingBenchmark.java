@@ -0,0 +1,45 @@
+package com.example.order_service.benchmarks;
+
+import com.example.order_service.dtos.OrderDTO;
+import com.example.order_service.models.OrderEntity;
+import com.example.order_service.models.OrderItemEntity;
+import com.example.order_service.models.OrderStatus;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Mapping of a full page of orders (200) to OrderDTO, as done by the order listings
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class OrderMappingBenchmark {
+
+	@Param({"1", "10"})
+	private int itemsPerOrder;
+
+	private List<OrderEntity> orders;
+
+	@Setup
+	public void setUp() {
+		orders = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			OrderEntity order = new OrderEntity((long) i, OrderStatus.PENDING, 100.0);
+			List<OrderItemEntity> items = new ArrayList<>();
+			for (long productId = 1; productId <= itemsPerOrder; productId++) {
+				items.add(new OrderItemEntity(order, productId, 2));
+			}
+			order.setOrderItemList(items);
+			orders.add(order);
+		}
+	}
+
+	@Benchmark
+	public List<OrderDTO> mapOrders() {
+		return orders.stream().map(OrderDTO::new).toList();
+	}
+}
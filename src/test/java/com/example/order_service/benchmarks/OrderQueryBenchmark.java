@@ -0,0 +1,111 @@
+package com.example.order_service.benchmarks;
+
+import org.flywaydb.core.Flyway;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Query run by OrderRepository.findByUserId (orders joined with their items) on the prod schema, with and without the indexes,
+// as the orders table grows. Runs on H2 in PostgreSQL mode migrated by Flyway
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class OrderQueryBenchmark {
+
+	private static final int ORDERS_PER_USER = 20;
+	private static final int ITEMS_PER_ORDER = 3;
+
+	private static final String FIND_BY_USER_ID = "select o.id, o.user_id, o.order_total, o.status, i.id, i.product_id, i.quantity "
+			+ "from order_entity o left join order_item_entity i on i.order_id = o.id where o.user_id = ?";
+
+	@Param({"10000", "100000", "500000"})
+	private int orders;
+
+	@Param({"true", "false"})
+	private boolean indexed;
+
+	private Connection connection;
+	private PreparedStatement findByUserId;
+	private int users;
+
+	@Setup
+	public void setUp() throws SQLException {
+		String url = "jdbc:h2:mem:orders-" + orders + "-" + indexed + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+		Flyway.configure().dataSource(url, "sa", "").load().migrate();
+
+		connection = DriverManager.getConnection(url, "sa", "");
+		users = orders / ORDERS_PER_USER;
+
+		try (Statement statement = connection.createStatement()) {
+			if (!indexed) {
+				statement.execute("drop index idx_order_user_id");
+				statement.execute("drop index idx_order_item_order_id");
+			}
+		}
+
+		insertOrders();
+		findByUserId = connection.prepareStatement(FIND_BY_USER_ID);
+	}
+
+	// Orders of the same user are spread over the table, as they are when many users buy at the same time
+	private void insertOrders() throws SQLException {
+		connection.setAutoCommit(false);
+		try (PreparedStatement order = connection.prepareStatement("insert into order_entity (id, user_id, order_total, status) values (?, ?, ?, 'PENDING')");
+			 PreparedStatement item = connection.prepareStatement("insert into order_item_entity (id, order_id, product_id, quantity) values (?, ?, ?, 1)")) {
+
+			long itemId = 1;
+			for (long orderId = 1; orderId <= orders; orderId++) {
+				order.setLong(1, orderId);
+				order.setLong(2, orderId % users);
+				order.setDouble(3, 10.0);
+				order.addBatch();
+
+				for (long productId = 1; productId <= ITEMS_PER_ORDER; productId++) {
+					item.setLong(1, itemId++);
+					item.setLong(2, orderId);
+					item.setLong(3, productId);
+					item.addBatch();
+				}
+
+				if (orderId % 1000 == 0) {
+					order.executeBatch();
+					item.executeBatch();
+				}
+			}
+			order.executeBatch();
+			item.executeBatch();
+		}
+		connection.commit();
+		connection.setAutoCommit(true);
+	}
+
+	@TearDown
+	public void tearDown() throws SQLException {
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("shutdown");
+		}
+		connection.close();
+	}
+
+	@Benchmark
+	public void findByUserId(Blackhole blackhole) throws SQLException {
+		findByUserId.setLong(1, ThreadLocalRandom.current().nextInt(users));
+		try (ResultSet rows = findByUserId.executeQuery()) {
+			while (rows.next()) {
+				blackhole.consume(rows.getLong(1));
+				blackhole.consume(rows.getLong(6));
+			}
+		}
+	}
+}
@@ -0,0 +1,57 @@
+package com.example.order_service.benchmarks;
+
+import com.example.order_service.dtos.ProductDetailsDTO;
+import com.example.order_service.services.Product.ProductDetailsIndex;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Matching of every cart line with its product-service details in createNewOrder, index lookup against the previous linear scan
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ProductMatchingBenchmark {
+
+	@Param({"10", "100", "500"})
+	private int cartLines;
+
+	private List<ProductDetailsDTO> productDetailsList;
+	private List<Long> productIds;
+
+	@Setup
+	public void setUp() {
+		productDetailsList = new ArrayList<>();
+		productIds = new ArrayList<>();
+		for (long id = 1; id <= cartLines; id++) {
+			productDetailsList.add(new ProductDetailsDTO(id * 7, "Product " + id, "Description", 10.0 + id, 100));
+			productIds.add(id * 7);
+		}
+	}
+
+	@Benchmark
+	public void indexLookup(Blackhole blackhole) {
+		ProductDetailsIndex index = new ProductDetailsIndex(productDetailsList.size());
+		for (ProductDetailsDTO product : productDetailsList) {
+			index.put(product);
+		}
+		for (Long productId : productIds) {
+			blackhole.consume(index.get(productId));
+		}
+	}
+
+	@Benchmark
+	public void linearScan(Blackhole blackhole) {
+		for (Long productId : productIds) {
+			blackhole.consume(productDetailsList.stream()
+					.filter(p -> p.getId().equals(productId))
+					.findFirst()
+					.orElseThrow());
+		}
+	}
+}
@@ -0,0 +1,105 @@
+package com.example.order_service.loadtest;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+// Open loop generator: requests are fired at a fixed rate whatever the response times are, and latency is
+// measured from the time the request was due, so a stalled server isn't hidden by fewer requests being sent
+public class LoadGenerator implements AutoCloseable {
+
+	private final ExecutorService httpExecutor = Executors.newCachedThreadPool();
+
+	private final HttpClient httpClient = HttpClient.newBuilder()
+			.connectTimeout(Duration.ofSeconds(5))
+			.executor(httpExecutor)
+			.build();
+
+	public LatencyReport run(String name, Supplier<HttpRequest> request, int ratePerSecond, Duration duration, int expectedStatus) throws InterruptedException {
+		int total = (int) (ratePerSecond * duration.toSeconds());
+		long intervalNanos = TimeUnit.SECONDS.toNanos(1) / ratePerSecond;
+		long[] latencies = new long[total];
+		AtomicInteger errors = new AtomicInteger();
+		// Requests that got no response at all (connection refused, reset...)
+		AtomicInteger failures = new AtomicInteger();
+		Map<Integer, AtomicInteger> statusCodes = new ConcurrentHashMap<>();
+		CountDownLatch done = new CountDownLatch(total);
+		ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+		AtomicInteger sent = new AtomicInteger();
+
+		long start = System.nanoTime();
+		long elapsed;
+		try {
+			scheduler.scheduleAtFixedRate(() -> {
+				int index = sent.getAndIncrement();
+				if (index >= total) {
+					return;
+				}
+				long dueAt = start + index * intervalNanos;
+				httpClient.sendAsync(request.get(), HttpResponse.BodyHandlers.discarding())
+						.whenComplete((response, error) -> {
+							latencies[index] = System.nanoTime() - dueAt;
+							if (error != null) {
+								failures.incrementAndGet();
+							} else {
+								statusCodes.computeIfAbsent(response.statusCode(), status -> new AtomicInteger()).incrementAndGet();
+							}
+							if (error != null || response.statusCode() != expectedStatus) {
+								errors.incrementAndGet();
+							}
+							done.countDown();
+						});
+			}, 0, intervalNanos, TimeUnit.NANOSECONDS);
+
+			done.await(duration.toSeconds() + 60, TimeUnit.SECONDS);
+			elapsed = System.nanoTime() - start;
+
+		} finally {
+			scheduler.shutdownNow();
+
+		}
+
+		Map<Integer, Integer> statusCounts = new TreeMap<>();
+		statusCodes.forEach((status, count) -> statusCounts.put(status, count.get()));
+
+		// Requests still running after the wait are left out of the percentiles
+		long[] completed = Arrays.stream(latencies).filter(latency -> latency > 0).sorted().toArray();
+		return new LatencyReport(name, total, completed.length, errors.get(), failures.get(), statusCounts, completed.length / (elapsed / 1e9),
+				percentile(completed, 0.50), percentile(completed, 0.99), percentile(completed, 0.999));
+	}
+
+	// HttpClient can't be closed on Java 17, stopping its executor ends the threads it left behind
+	@Override
+	public void close() {
+		httpExecutor.shutdownNow();
+	}
+
+	private static double percentile(long[] sortedLatencies, double percentile) {
+		if (sortedLatencies.length == 0) {
+			return 0;
+		}
+		int index = (int) Math.ceil(percentile * sortedLatencies.length) - 1;
+		return sortedLatencies[Math.max(index, 0)] / 1e6;
+	}
+
+	public record LatencyReport(String name, int sent, int requests, int errors, int failures, Map<Integer, Integer> statusCodes,
+								double throughput, double p50, double p99, double p999) {
+
+		public double errorRate() {
+			return sent == 0 ? 0 : (double) (errors + sent - requests) / sent;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%-28s sent=%d requests=%d errors=%d failures=%d status=%s throughput=%.1f req/s p50=%.2f ms p99=%.2f ms p999=%.2f ms",
+					name, sent, requests, errors, failures, statusCodes, throughput, p50, p99, p999);
+		}
+	}
+}
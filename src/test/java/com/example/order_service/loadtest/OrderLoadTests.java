@@ -0,0 +1,169 @@
+package com.example.order_service.loadtest;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Drives order creation and the "my orders" listing at a fixed rate against a stubbed product-service and broker.
+// Excluded from the regular build, run it with: mvn -Ploadtest test
+// Tunable with -Dloadtest.rate (req/s), -Dloadtest.duration (s), -Dloadtest.stub.latency (ms), -Dloadtest.stub.error-rate (0..1)
+// and -Dloadtest.async=true. The results are logged and written to target/loadtest-results.txt (-Dloadtest.results)
+// Fails when a request gets no answer, when a response has an unexpected status, when the errors go over -Dloadtest.max-error-rate
+// (twice the stub error rate by default, a sync order makes two product-service calls) or the p99 over -Dloadtest.p99-budget (ms, off by default)
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class OrderLoadTests {
+
+	private static final String SECRET = "YWFhYWFhYWFhYWFhYWFhYWFhYWFhYWFhYWFhYWFhYWFhYWFhYWFhYWFhYWFhYWFh";
+
+	private static final int RATE = Integer.getInteger("loadtest.rate", 100);
+	private static final Duration DURATION = Duration.ofSeconds(Integer.getInteger("loadtest.duration", 20));
+	private static final long STUB_LATENCY = Long.getLong("loadtest.stub.latency", 20);
+	private static final double STUB_ERROR_RATE = Double.parseDouble(System.getProperty("loadtest.stub.error-rate", "0"));
+	// Creates the orders with "Prefer: respond-async", answered with 202 before the stock is reserved
+	private static final boolean ASYNC = Boolean.getBoolean("loadtest.async");
+	private static final double MAX_ERROR_RATE = Double.parseDouble(System.getProperty("loadtest.max-error-rate", String.valueOf(Math.min(1, 2 * STUB_ERROR_RATE))));
+	private static final long P99_BUDGET = Long.getLong("loadtest.p99-budget", 0);
+	private static final Path RESULTS = Path.of(System.getProperty("loadtest.results", "target/loadtest-results.txt"));
+
+	private static final Logger logger = LoggerFactory.getLogger(OrderLoadTests.class);
+
+	private static final ProductServiceStub productService = startProductService();
+
+	// Stand-in for the broker, the outbox relay "publishes" to it without a RabbitMQ instance
+	@MockitoBean
+	private RabbitTemplate rabbitTemplate;
+
+	@Autowired
+	private ThreadPoolTaskExecutor orderProcessingExecutor;
+
+	@LocalServerPort
+	private int port;
+
+	@DynamicPropertySource
+	static void properties(DynamicPropertyRegistry registry) {
+		registry.add("jwt.secret", () -> SECRET);
+		registry.add("eureka.client.enabled", () -> "false");
+		registry.add("spring.cloud.discovery.client.simple.instances.product-service[0].uri", productService::getUri);
+	}
+
+	@AfterAll
+	static void stopProductService() {
+		productService.close();
+	}
+
+	@Test
+	void createOrdersAndListThem() throws InterruptedException, IOException {
+		String token = token();
+		String newOrder = "{\"status\":\"PENDING\",\"orderItems\":[{\"productId\":1,\"quantity\":1},{\"productId\":2,\"quantity\":2},{\"productId\":3,\"quantity\":1}]}";
+		int createStatus = ASYNC ? 202 : 201;
+
+		LoadGenerator.LatencyReport create;
+		LoadGenerator.LatencyReport list;
+		long drainMillis;
+		try (LoadGenerator loadGenerator = new LoadGenerator()) {
+			create = loadGenerator.run("POST /api/order/orders", () -> HttpRequest.newBuilder(uri("/api/order/orders"))
+					.header("Authorization", "Bearer " + token)
+					.header("Content-Type", "application/json")
+					.header("Prefer", ASYNC ? "respond-async" : "return=representation")
+					.POST(HttpRequest.BodyPublishers.ofString(newOrder))
+					.build(), RATE, DURATION, createStatus);
+
+			list = loadGenerator.run("GET /api/order/orders/user", () -> HttpRequest.newBuilder(uri("/api/order/orders/user"))
+					.header("Authorization", "Bearer " + token)
+					.GET()
+					.build(), RATE, DURATION, 200);
+
+			// Accepted orders are still being processed, product-service has to stay up until the workers are done
+			long drainStart = System.nanoTime();
+			while (orderProcessingExecutor.getActiveCount() > 0 || orderProcessingExecutor.getQueueSize() > 0) {
+				Thread.sleep(50);
+			}
+			drainMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - drainStart);
+		}
+
+		List<String> results = new ArrayList<>();
+		results.add(String.format("Load test at %d req/s for %ds, product-service latency %d ms and error rate %.2f, async %b",
+				RATE, DURATION.toSeconds(), STUB_LATENCY, STUB_ERROR_RATE, ASYNC));
+		results.add(create.toString());
+		results.add(list.toString());
+		if (ASYNC) {
+			results.add(String.format("Accepted orders processed %d ms after the load ended", drainMillis));
+		}
+		results.forEach(logger::info);
+		Files.createDirectories(RESULTS.toAbsolutePath().getParent());
+		Files.write(RESULTS, results);
+
+		assertWithinBudget(create, createStatus);
+		assertWithinBudget(list, 200);
+	}
+
+	private static void assertWithinBudget(LoadGenerator.LatencyReport report, int expectedStatus) {
+		assertEquals(report.sent(), report.requests(), report.name() + ": requests left without an answer");
+		assertEquals(0, report.failures(), report.name() + ": requests failed without a response");
+
+		// Only product-service errors (the stub error rate) can turn into other statuses, and always as a 5xx
+		report.statusCodes().keySet().stream()
+				.filter(status -> status != expectedStatus)
+				.forEach(status -> assertTrue(STUB_ERROR_RATE > 0 && status >= 500,
+						report.name() + ": unexpected status " + status + " in " + report.statusCodes()));
+
+		assertTrue(report.errorRate() <= MAX_ERROR_RATE,
+				String.format("%s: error rate %.4f over the %.4f budget", report.name(), report.errorRate(), MAX_ERROR_RATE));
+
+		if (P99_BUDGET > 0) {
+			assertTrue(report.p99() <= P99_BUDGET, String.format("%s: p99 %.2f ms over the %d ms budget", report.name(), report.p99(), P99_BUDGET));
+		}
+	}
+
+	private URI uri(String path) {
+		return URI.create("http://localhost:" + port + path);
+	}
+
+	private static String token() {
+		return Jwts.builder()
+				.subject("loadtest@mail.com")
+				.claim("id", "1")
+				.claim("role", "CLIENT")
+				.issuedAt(new Date())
+				.expiration(new Date(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1)))
+				.signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET)))
+				.compact();
+	}
+
+	private static ProductServiceStub startProductService() {
+		try {
+			return new ProductServiceStub(STUB_LATENCY, STUB_ERROR_RATE);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
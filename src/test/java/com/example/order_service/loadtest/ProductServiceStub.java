@@ -0,0 +1,81 @@
+package com.example.order_service.loadtest;
+
+import com.example.order_service.dtos.ProductDetailsDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+// In-process product-service answering /details and /reduce-stock with a fixed latency and a ratio of 503 errors
+public class ProductServiceStub implements AutoCloseable {
+
+	private final HttpServer server;
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final long latencyMillis;
+	private final double errorRate;
+
+	public ProductServiceStub(long latencyMillis, double errorRate) throws IOException {
+		this.latencyMillis = latencyMillis;
+		this.errorRate = errorRate;
+		this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		this.server.createContext("/api/product/details", this::details);
+		this.server.createContext("/api/product/reduce-stock", this::reduceStock);
+		this.server.setExecutor(Executors.newCachedThreadPool());
+		this.server.start();
+	}
+
+	public String getUri() {
+		return "http://localhost:" + server.getAddress().getPort();
+	}
+
+	private void details(HttpExchange exchange) throws IOException {
+		Long[] productIds = objectMapper.readValue(exchange.getRequestBody(), Long[].class);
+		if (simulate(exchange)) {
+			ProductDetailsDTO[] products = Arrays.stream(productIds)
+					.map(id -> new ProductDetailsDTO(id, "Product " + id, "Description", 10.0, 1_000_000))
+					.toArray(ProductDetailsDTO[]::new);
+			respond(exchange, 200, objectMapper.writeValueAsBytes(products));
+		}
+	}
+
+	private void reduceStock(HttpExchange exchange) throws IOException {
+		exchange.getRequestBody().readAllBytes();
+		if (simulate(exchange)) {
+			respond(exchange, 200, "{}".getBytes());
+		}
+	}
+
+	// Applies the latency and answers 503 for the configured ratio of requests, returns false if the error was sent
+	private boolean simulate(HttpExchange exchange) throws IOException {
+		try {
+			Thread.sleep(latencyMillis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (ThreadLocalRandom.current().nextDouble() < errorRate) {
+			respond(exchange, 503, "{\"error\":\"Service unavailable\"}".getBytes());
+			return false;
+		}
+		return true;
+	}
+
+	private void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+		exchange.getResponseHeaders().add("Content-Type", "application/json");
+		// Bodies are never empty, the JDK server closes keep-alive connections after a response without body
+		exchange.sendResponseHeaders(status, body.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(body);
+		}
+	}
+
+	@Override
+	public void close() {
+		server.stop(0);
+	}
+}
@@ -0,0 +1,41 @@
+package com.example.order_service.rabbitmq;
+
+import com.example.order_service.dtos.ProductStockUpdate;
+import com.example.order_service.dtos.StockCompensationDTO;
+import com.example.order_service.models.OutboxMessageEntity;
+import com.example.order_service.repositories.OutboxMessageRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// The relay is pushed out so the messages stay in the outbox
+@SpringBootTest(properties = "outbox.relay.interval=3600000")
+class RabbitMQProducerTests {
+
+	@Autowired
+	private RabbitMQProducer rabbitMQProducer;
+
+	@Autowired
+	private OutboxMessageRepository outboxMessageRepository;
+
+	@Test
+	void stockCompensationKeepsTheLegacyRollbackMessages() {
+		String orderCorrelationId = UUID.randomUUID().toString();
+		rabbitMQProducer.sendStockCompensation(new StockCompensationDTO(orderCorrelationId,
+				List.of(new ProductStockUpdate(1L, 2), new ProductStockUpdate(3L, 4))));
+
+		List<OutboxMessageEntity> messages = outboxMessageRepository.findAll().stream()
+				.filter(message -> message.getMessageId().startsWith(orderCorrelationId))
+				.toList();
+
+		// One "productId,quantity" per line on the routing key product-service consumes, the order event is off by default
+		assertEquals(2, messages.size());
+		assertEquals(List.of("rollback.stock", "rollback.stock"), messages.stream().map(OutboxMessageEntity::getRoutingKey).toList());
+		assertEquals(List.of("\"1,2\"", "\"3,4\""), messages.stream().map(OutboxMessageEntity::getPayload).toList());
+	}
+}
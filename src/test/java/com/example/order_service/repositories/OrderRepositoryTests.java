@@ -0,0 +1,115 @@
+package com.example.order_service.repositories;
+
+import com.example.order_service.dtos.OrderDTO;
+import com.example.order_service.dtos.OrderItemLine;
+import com.example.order_service.dtos.OrderSummary;
+import com.example.order_service.models.OrderEntity;
+import com.example.order_service.models.OrderItemEntity;
+import com.example.order_service.models.OrderStatus;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class OrderRepositoryTests {
+
+	private static final int ORDERS = 20;
+	private static final int ITEMS_PER_ORDER = 3;
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	@Autowired
+	private TestEntityManager entityManager;
+
+	private Statistics statistics;
+
+	@BeforeEach
+	void setUp() {
+		for (int i = 0; i < ORDERS; i++) {
+			OrderEntity order = new OrderEntity(1L, OrderStatus.PENDING, 10.0);
+			List<OrderItemEntity> items = new ArrayList<>();
+			for (long productId = 1; productId <= ITEMS_PER_ORDER; productId++) {
+				items.add(new OrderItemEntity(order, productId, 1));
+			}
+			order.setOrderItemList(items);
+			entityManager.persist(order);
+		}
+		entityManager.flush();
+		entityManager.clear();
+
+		statistics = entityManager.getEntityManager().getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+	}
+
+	@Test
+	void saveBatchesItemInserts() {
+		OrderEntity order = new OrderEntity(2L, OrderStatus.PENDING, 10.0);
+		List<OrderItemEntity> items = new ArrayList<>();
+		for (long productId = 1; productId <= 100; productId++) {
+			items.add(new OrderItemEntity(order, productId, 1));
+		}
+		order.setOrderItemList(items);
+
+		orderRepository.save(order);
+		entityManager.flush();
+
+		// One insert for the order, two batches of 50 items and at most two sequence calls, with IDENTITY it would be 101 statements
+		assertEquals(101, statistics.getEntityInsertCount());
+		assertTrue(statistics.getPrepareStatementCount() <= 5);
+	}
+
+	@Test
+	void findByUserIdLoadsItemsInTheSameQuery() {
+		List<OrderEntity> orders = orderRepository.findByUserId(1L);
+		orders.forEach(OrderDTO::new);
+
+		assertEquals(ORDERS, orders.size());
+		assertEquals(1, statistics.getPrepareStatementCount());
+	}
+
+	@Test
+	void pagedSummariesLoadItemLinesInOneQueryWithoutEntities() {
+		List<OrderSummary> orders = orderRepository.findSummariesByUserId(1L, PageRequest.of(0, ORDERS, Sort.by("id"))).getContent();
+		List<OrderItemLine> items = orderRepository.findItemLinesByOrderIds(orders.stream().map(OrderSummary::id).toList());
+
+		assertEquals(ORDERS, orders.size());
+		assertEquals(ORDERS * ITEMS_PER_ORDER, items.size());
+		assertEquals(2, statistics.getPrepareStatementCount());
+		assertEquals(0, statistics.getEntityLoadCount());
+	}
+
+	@Test
+	void keysetSummariesLoadItemLinesInOneQueryWithoutEntities() {
+		List<OrderSummary> orders = orderRepository.findSummariesAfter(0L, Limit.of(ORDERS));
+		List<OrderItemLine> items = orderRepository.findItemLinesByOrderIds(orders.stream().map(OrderSummary::id).toList());
+
+		assertEquals(ORDERS, orders.size());
+		assertEquals(ORDERS * ITEMS_PER_ORDER, items.size());
+		assertEquals(2, statistics.getPrepareStatementCount());
+		assertEquals(0, statistics.getEntityLoadCount());
+	}
+
+	@Test
+	void streamAllLoadsItemsInTheSameQuery() {
+		try (Stream<OrderEntity> orders = orderRepository.streamAllBy()) {
+			assertEquals(ORDERS, orders.map(OrderDTO::new).toList().size());
+		}
+
+		assertEquals(1, statistics.getPrepareStatementCount());
+	}
+}
@@ -0,0 +1,170 @@
+package com.example.order_service.services.Idempotency;
+
+import com.example.order_service.dtos.IdempotentResponse;
+import com.example.order_service.dtos.NewOrder;
+import com.example.order_service.dtos.NewOrderItem;
+import com.example.order_service.exceptions.IdempotencyKeyException;
+import com.example.order_service.exceptions.IdempotencyKeyInProgressException;
+import com.example.order_service.models.OrderEntity;
+import com.example.order_service.models.OrderStatus;
+import com.example.order_service.repositories.OrderRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class IdempotencyServiceTests {
+
+	private static final NewOrder ORDER = new NewOrder("PENDING", List.of(new NewOrderItem(1L, 2, null)));
+
+	@Autowired
+	private IdempotencyService idempotencyService;
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void retryReplaysTheStoredResponse() throws Exception {
+		long userId = userId();
+		AtomicInteger calls = new AtomicInteger();
+
+		IdempotentResponse first = idempotencyService.execute(userId, "key", ORDER, () -> createOrder(userId, calls));
+		IdempotentResponse retry = idempotencyService.execute(userId, "key", ORDER, () -> createOrder(userId, calls));
+
+		assertEquals(1, calls.get());
+		assertEquals(1, countOrders(userId));
+		assertFalse(first.replayed());
+		assertTrue(retry.replayed());
+		assertEquals(first.statusCode(), retry.statusCode());
+		assertEquals(first.body(), retry.body());
+	}
+
+	@Test
+	void sameKeyWithAnotherRequestIsRefused() throws Exception {
+		long userId = userId();
+		AtomicInteger calls = new AtomicInteger();
+		idempotencyService.execute(userId, "key", ORDER, () -> createOrder(userId, calls));
+
+		NewOrder otherOrder = new NewOrder("PENDING", List.of(new NewOrderItem(1L, 3, null)));
+		assertThrows(IdempotencyKeyException.class, () -> idempotencyService.execute(userId, "key", otherOrder, () -> createOrder(userId, calls)));
+		assertEquals(1, calls.get());
+	}
+
+	@Test
+	void retryWhileTheFirstRequestRunsIsRefused() throws Exception {
+		long userId = userId();
+		AtomicInteger calls = new AtomicInteger();
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+
+		CompletableFuture<IdempotentResponse> first = CompletableFuture.supplyAsync(() -> execute(userId, () -> {
+			started.countDown();
+			release.await(10, TimeUnit.SECONDS);
+			return createOrder(userId, calls);
+		}));
+
+		try {
+			assertTrue(started.await(10, TimeUnit.SECONDS));
+			assertThrows(IdempotencyKeyInProgressException.class, () -> idempotencyService.execute(userId, "key", ORDER, () -> createOrder(userId, calls)));
+		} finally {
+			release.countDown();
+		}
+
+		assertEquals(201, first.get(10, TimeUnit.SECONDS).statusCode());
+		assertEquals(1, calls.get());
+	}
+
+	@Test
+	void failedRequestReleasesTheKey() throws Exception {
+		long userId = userId();
+		AtomicInteger calls = new AtomicInteger();
+
+		assertThrows(IllegalStateException.class, () -> idempotencyService.execute(userId, "key", ORDER, () -> {
+			createOrder(userId, calls);
+			throw new IllegalStateException("Product service failed");
+		}));
+
+		// The order of the failed request was rolled back with it
+		assertEquals(0, countOrders(userId));
+
+		IdempotentResponse retry = idempotencyService.execute(userId, "key", ORDER, () -> createOrder(userId, calls));
+		assertFalse(retry.replayed());
+		assertEquals(2, calls.get());
+		assertEquals(1, countOrders(userId));
+	}
+
+	@Test
+	void requestOverTakenByARetryAfterTheLeaseIsRolledBack() throws Exception {
+		long userId = userId();
+		AtomicInteger calls = new AtomicInteger();
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+
+		CompletableFuture<IdempotentResponse> slow = CompletableFuture.supplyAsync(() -> execute(userId, () -> {
+			started.countDown();
+			release.await(10, TimeUnit.SECONDS);
+			return createOrder(userId, calls);
+		}));
+
+		try {
+			assertTrue(started.await(10, TimeUnit.SECONDS));
+			// The lease of the first claim ends and the retry takes the key over
+			jdbcTemplate.update("update idempotency_key_entity set created_at = ? where id = ?",
+					Timestamp.from(Instant.now().minus(Duration.ofHours(1))), userId + ":key");
+			IdempotentResponse retry = idempotencyService.execute(userId, "key", ORDER, () -> createOrder(userId, calls));
+			assertEquals(201, retry.statusCode());
+		} finally {
+			release.countDown();
+		}
+
+		ExecutionException e = assertThrows(ExecutionException.class, () -> slow.get(10, TimeUnit.SECONDS));
+		assertInstanceOf(IdempotencyKeyInProgressException.class, e.getCause().getCause());
+		assertEquals(2, calls.get());
+		assertEquals(1, countOrders(userId));
+	}
+
+	// Saves an order in the transaction of the call, as OrderService does
+	private IdempotentResponse createOrder(long userId, AtomicInteger calls) {
+		calls.incrementAndGet();
+		orderRepository.save(new OrderEntity(userId, OrderStatus.PENDING, 10.0));
+		return new IdempotentResponse(201, null, MediaType.TEXT_PLAIN_VALUE, "Order crated succesfully");
+	}
+
+	private IdempotentResponse execute(long userId, IdempotencyService.IdempotentCall call) {
+		try {
+			return idempotencyService.execute(userId, "key", ORDER, call);
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private long countOrders(long userId) {
+		return orderRepository.findByUserId(userId).size();
+	}
+
+	private static long userId() {
+		return UUID.randomUUID().getMostSignificantBits() & Long.MAX_VALUE;
+	}
+}
@@ -0,0 +1,146 @@
+package com.example.order_service.services.Order;
+
+import com.example.order_service.dtos.IdempotentResponse;
+import com.example.order_service.dtos.NewOrder;
+import com.example.order_service.dtos.NewOrderItem;
+import com.example.order_service.dtos.OrderStatusDTO;
+import com.example.order_service.dtos.ProductDetailsDTO;
+import com.example.order_service.dtos.UpdateOrder;
+import com.example.order_service.exceptions.StatusException;
+import com.example.order_service.models.OrderEntity;
+import com.example.order_service.models.OrderItemEntity;
+import com.example.order_service.models.OrderStatus;
+import com.example.order_service.repositories.OrderRepository;
+import com.example.order_service.services.Idempotency.IdempotencyService;
+import com.example.order_service.services.Product.ProductServiceClient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// The scheduled recovery is pushed out so the tests run it by hand
+@SpringBootTest(properties = "order.async.recovery-interval=3600000")
+class AcceptedOrderRecoveryTests {
+
+	@MockitoBean
+	private ProductServiceClient productServiceClient;
+
+	@Autowired
+	private OrderService orderService;
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private IdempotencyService idempotencyService;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		when(productServiceClient.getProductDetails(anyList())).thenAnswer(invocation -> {
+			List<Long> productIds = invocation.getArgument(0);
+			return productIds.stream()
+					.map(productId -> new ProductDetailsDTO(productId, "Product " + productId, "", 10.0, 100))
+					.toArray(ProductDetailsDTO[]::new);
+		});
+	}
+
+	@Test
+	void acceptedOrderLeftByARestartIsProcessed() throws Exception {
+		// Saved by acceptNewOrder before the instance stopped, its queued task was lost
+		OrderEntity order = acceptedOrder(OrderStatus.COMPLETED);
+
+		orderService.recoverAcceptedOrders();
+
+		verify(productServiceClient, timeout(10_000)).reduceStock(any());
+		OrderEntity processed = waitWhileAccepted(order.getId());
+		assertEquals(OrderStatus.COMPLETED, processed.getStatus());
+		assertEquals(20.0, processed.getOrderTotal());
+	}
+
+	@Test
+	void orderAcceptedInATransactionIsQueuedOnceCommitted() throws Exception {
+		NewOrder newOrder = new NewOrder("PENDING", List.of(new NewOrderItem(1L, 1, null)));
+
+		// As with an Idempotency-Key, the order and the stored response are committed together
+		IdempotentResponse response = idempotencyService.execute(1L, UUID.randomUUID().toString(), newOrder, () -> {
+			OrderStatusDTO order = orderService.acceptNewOrder(newOrder, "user@example.com", 1L);
+			return new IdempotentResponse(202, "/api/order/orders/" + order.orderId() + "/status", MediaType.APPLICATION_JSON_VALUE, "");
+		});
+
+		Long orderId = Long.valueOf(response.location().split("/")[4]);
+		assertEquals(OrderStatus.PENDING, waitWhileAccepted(orderId).getStatus());
+	}
+
+	@Test
+	void acceptedOrderWithoutRequestedStatusIsRejected() throws Exception {
+		OrderEntity order = acceptedOrder(null);
+
+		orderService.recoverAcceptedOrders();
+
+		assertEquals(OrderStatus.REJECTED, waitWhileAccepted(order.getId()).getStatus());
+	}
+
+	@Test
+	void statusOfAcceptedAndRejectedOrdersCantBeUpdated() {
+		OrderEntity accepted = new OrderEntity(1L, OrderStatus.ACCEPTED, null);
+		OrderEntity rejected = new OrderEntity(1L, OrderStatus.REJECTED, null);
+		OrderEntity pending = new OrderEntity(1L, OrderStatus.PENDING, 10.0);
+		orderRepository.saveAll(List.of(accepted, rejected, pending));
+
+		assertThrows(StatusException.class, () -> orderService.updateOrderById(new UpdateOrder("COMPLETED"), accepted.getId()));
+		assertThrows(StatusException.class, () -> orderService.updateOrderById(new UpdateOrder("COMPLETED"), rejected.getId()));
+		assertEquals(OrderStatus.ACCEPTED, orderRepository.findById(accepted.getId()).orElseThrow().getStatus());
+
+		assertEquals(OrderStatus.COMPLETED, updateToCompleted(pending.getId()));
+	}
+
+	// In a transaction as in a web request (open-in-view), the dto reads the items
+	private OrderStatus updateToCompleted(Long orderId) {
+		return transactionTemplate.execute(status -> {
+			try {
+				return orderService.updateOrderById(new UpdateOrder("COMPLETED"), orderId).getStatus();
+			} catch (Exception e) {
+				throw new AssertionError(e);
+			}
+		});
+	}
+
+	private OrderEntity acceptedOrder(OrderStatus requestedStatus) {
+		OrderEntity order = new OrderEntity(1L, OrderStatus.ACCEPTED, null);
+		order.setRequestedStatus(requestedStatus);
+		order.setUserEmail("user@example.com");
+		List<OrderItemEntity> items = new ArrayList<>();
+		items.add(new OrderItemEntity(order, 1L, 2));
+		order.setOrderItemList(items);
+		return orderRepository.save(order);
+	}
+
+	private OrderEntity waitWhileAccepted(Long orderId) throws InterruptedException {
+		for (int attempt = 0; attempt < 100; attempt++) {
+			OrderEntity order = orderRepository.findById(orderId).orElseThrow();
+			if (order.getStatus() != OrderStatus.ACCEPTED) {
+				return order;
+			}
+			Thread.sleep(100);
+		}
+		throw new AssertionError("Order " + orderId + " is still accepted");
+	}
+}
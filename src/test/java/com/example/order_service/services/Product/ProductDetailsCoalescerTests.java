@@ -0,0 +1,112 @@
+package com.example.order_service.services.Product;
+
+import com.example.order_service.dtos.ProductDetailsDTO;
+import com.example.order_service.exceptions.ProductServiceUnavailableException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.atMost;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(properties = {
+		"product-service.details.coalescing.enabled=true",
+		"product-service.details.coalescing.window=20ms",
+		"product-service.details.coalescing.wait-timeout=3s"
+})
+class ProductDetailsCoalescerTests {
+
+	@MockitoBean
+	private ProductServiceClient productServiceClient;
+
+	@Autowired
+	private ProductDetailsCoalescer productDetailsCoalescer;
+
+	@Autowired
+	private AsyncTaskExecutor productServiceExecutor;
+
+	@Test
+	void callersOnProductServiceExecutorThreadsDontDeadlock() throws Exception {
+		when(productServiceClient.getProductDetails(anyList())).thenAnswer(invocation -> {
+			Thread.sleep(50);
+			return details(invocation.getArgument(0));
+		});
+
+		// More callers than productServiceExecutor threads, all of them waiting on merged calls (the parallel chunks path)
+		int callers = 64;
+		List<Future<ProductDetailsDTO[]>> futures = new ArrayList<>();
+		for (long productId = 1; productId <= callers; productId++) {
+			List<Long> productIds = List.of(productId);
+			futures.add(productServiceExecutor.submit(() -> productDetailsCoalescer.getProductDetails(productIds)));
+		}
+
+		for (int i = 0; i < callers; i++) {
+			ProductDetailsDTO[] products = futures.get(i).get(10, TimeUnit.SECONDS);
+			assertEquals(1, products.length);
+			assertEquals(i + 1L, products[0].getId());
+		}
+		verify(productServiceClient, atMost(callers - 1)).getProductDetails(anyList());
+	}
+
+	@Test
+	void callerStopsWaitingAfterTheTimeout() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		when(productServiceClient.getProductDetails(anyList())).thenAnswer(invocation -> {
+			release.await(10, TimeUnit.SECONDS);
+			return details(invocation.getArgument(0));
+		});
+
+		try {
+			long start = System.nanoTime();
+			assertThrows(ProductServiceUnavailableException.class, () -> productDetailsCoalescer.getProductDetails(List.of(1L)));
+			assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(6));
+		} finally {
+			release.countDown();
+		}
+	}
+
+	@Test
+	@DirtiesContext
+	void shutdownFailsTheBatchesWaitingOnProductService() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		when(productServiceClient.getProductDetails(anyList())).thenAnswer(invocation -> {
+			release.await(10, TimeUnit.SECONDS);
+			return details(invocation.getArgument(0));
+		});
+
+		try {
+			Future<ProductDetailsDTO[]> caller = productServiceExecutor.submit(() -> productDetailsCoalescer.getProductDetails(List.of(1L)));
+			verify(productServiceClient, timeout(2_000)).getProductDetails(anyList());
+
+			productDetailsCoalescer.shutdown();
+
+			ExecutionException e = assertThrows(ExecutionException.class, () -> caller.get(1, TimeUnit.SECONDS));
+			assertInstanceOf(ProductServiceUnavailableException.class, e.getCause());
+		} finally {
+			release.countDown();
+		}
+	}
+
+	private static ProductDetailsDTO[] details(List<Long> productIds) {
+		return productIds.stream()
+				.map(productId -> new ProductDetailsDTO(productId, "Product " + productId, "", 10.0, 100))
+				.toArray(ProductDetailsDTO[]::new);
+	}
+}
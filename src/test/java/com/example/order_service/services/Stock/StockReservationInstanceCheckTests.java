@@ -0,0 +1,42 @@
+package com.example.order_service.services.Stock;
+
+import com.example.order_service.OrderServiceApplication;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StockReservationInstanceCheckTests {
+
+	// Another order-service instance is registered, seen through the simple discovery client
+	private static final String OTHER_INSTANCE = "--spring.cloud.discovery.client.simple.instances.order-service[0].uri=http://other-instance:8080";
+
+	@Test
+	void ledgerDoesNotStartNextToAnotherInstance() {
+		Exception e = assertThrows(Exception.class, () -> start("--stock.reservation.enabled=true").close());
+
+		assertTrue(rootCause(e).getMessage().contains("requires a single order-service instance"));
+	}
+
+	@Test
+	void otherInstancesAreAllowedWithoutTheLedger() {
+		try (ConfigurableApplicationContext context = start("--stock.reservation.enabled=false")) {
+			assertTrue(context.isActive());
+		}
+	}
+
+	private static ConfigurableApplicationContext start(String ledger) {
+		// Command line arguments, properties() would only be defaults under application.properties
+		return new SpringApplicationBuilder(OrderServiceApplication.class)
+				.run("--server.port=0", "--eureka.client.enabled=false", "--spring.datasource.url=jdbc:h2:mem:instance-check", OTHER_INSTANCE, ledger);
+	}
+
+	private static Throwable rootCause(Throwable e) {
+		while (e.getCause() != null) {
+			e = e.getCause();
+		}
+		return e;
+	}
+}
@@ -0,0 +1,151 @@
+package com.example.order_service.services.Stock;
+
+import com.example.order_service.exceptions.StockException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StockReservationLedgerTests {
+
+	private static final Duration TTL = Duration.ofSeconds(30);
+
+	private final StockReservationLedger ledger = new StockReservationLedger();
+
+	@Test
+	void concurrentReservationsNeverOversell() throws Exception {
+		int stock = 100;
+		int threads = 16;
+		int attemptsPerThread = 50;
+		ledger.load(1L, stock, 0, 0);
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		CountDownLatch start = new CountDownLatch(1);
+		AtomicInteger reserved = new AtomicInteger();
+		List<Future<?>> futures = new ArrayList<>();
+
+		for (int i = 0; i < threads; i++) {
+			futures.add(executor.submit(() -> {
+				start.await();
+				for (int attempt = 0; attempt < attemptsPerThread; attempt++) {
+					try {
+						ledger.reserve(Map.of(1L, 1), TTL, 0);
+						reserved.incrementAndGet();
+					} catch (StockException e) {
+						// No stock left
+					}
+				}
+				return null;
+			}));
+		}
+
+		start.countDown();
+		for (Future<?> future : futures) {
+			future.get(30, TimeUnit.SECONDS);
+		}
+		executor.shutdown();
+
+		assertEquals(stock, reserved.get());
+		assertEquals(0, ledger.available(1L));
+		assertEquals(stock, ledger.activeHolds());
+	}
+
+	@Test
+	void reservationIsAllOrNothing() {
+		ledger.load(1L, 5, 0, 0);
+		ledger.load(2L, 1, 0, 0);
+
+		assertThrows(StockException.class, () -> ledger.reserve(Map.of(1L, 3, 2L, 2), TTL, 0));
+		assertThrows(StockException.class, () -> ledger.reserve(Map.of(1L, 3, 3L, 1), TTL, 0));
+
+		assertEquals(5, ledger.available(1L));
+		assertEquals(1, ledger.available(2L));
+		assertEquals(0, ledger.activeHolds());
+	}
+
+	@Test
+	void releaseReturnsTheUnitsOnce() throws StockException {
+		ledger.load(1L, 10, 0, 0);
+		StockHold hold = ledger.reserve(Map.of(1L, 4), TTL, 0);
+		assertEquals(6, ledger.available(1L));
+
+		ledger.release(hold);
+		ledger.release(hold);
+
+		assertEquals(10, ledger.available(1L));
+		assertEquals(0, ledger.activeHolds());
+	}
+
+	@Test
+	void expiredHoldConfirmedLateTakesTheUnitsAgain() throws StockException {
+		ledger.load(1L, 10, 0, 0);
+		StockHold hold = ledger.reserve(Map.of(1L, 3), Duration.ofSeconds(1), 0);
+
+		assertEquals(0, ledger.expire(999));
+		assertEquals(1, ledger.expire(1000));
+		assertEquals(10, ledger.available(1L));
+
+		// The order committed after the hold expired, its units are sold anyway
+		ledger.confirm(hold);
+		assertEquals(7, ledger.available(1L));
+		assertEquals(0, ledger.activeHolds());
+
+		// A late rollback of an expired hold doesn't give the units back twice
+		StockHold expired = ledger.reserve(Map.of(1L, 2), Duration.ofSeconds(1), 2000);
+		ledger.expire(3000);
+		ledger.release(expired);
+		assertEquals(7, ledger.available(1L));
+	}
+
+	@Test
+	void confirmedUnitsStayReservedUntilReconciled() throws StockException {
+		ledger.load(1L, 10, 0, 0);
+		StockHold hold = ledger.reserve(Map.of(1L, 4), TTL, 0);
+		ledger.confirm(hold);
+
+		assertEquals(0, ledger.activeHolds());
+		assertEquals(6, ledger.available(1L));
+
+		ledger.reconciled(Map.of(1L, 4));
+		assertEquals(6, ledger.available(1L));
+
+		// Product-service already has the reduced stock, reading it again doesn't change what's available
+		ledger.refresh(1L, 6, 1);
+		assertEquals(6, ledger.available(1L));
+	}
+
+	@Test
+	void loadedProductCountsTheUnreducedUnits() {
+		ledger.load(1L, 10, 3, 0);
+		assertEquals(7, ledger.available(1L));
+
+		// An entry already loaded is kept
+		ledger.load(1L, 50, 0, 0);
+		assertEquals(7, ledger.available(1L));
+		assertTrue(ledger.findMissing(List.of(1L, 2L)).contains(2L));
+	}
+
+	@Test
+	void staleEntriesAreFoundByRefreshTime() {
+		ledger.load(1L, 10, 0, 0);
+		ledger.load(2L, 10, 0, 4000);
+
+		assertEquals(List.of(1L), ledger.findStale(5000, Duration.ofSeconds(5)));
+
+		ledger.refresh(1L, 8, 5000);
+		assertEquals(8, ledger.available(1L));
+		assertTrue(ledger.findStale(5000, Duration.ofSeconds(5)).isEmpty());
+	}
+}
@@ -0,0 +1,210 @@
+package com.example.order_service.services.Stock;
+
+import com.example.order_service.dtos.NewOrder;
+import com.example.order_service.dtos.NewOrderItem;
+import com.example.order_service.dtos.ProductDetailsDTO;
+import com.example.order_service.dtos.ReduceStockRequest;
+import com.example.order_service.exceptions.ProductServiceUnavailableException;
+import com.example.order_service.models.StockReductionEntity;
+import com.example.order_service.models.StockReductionStatus;
+import com.example.order_service.repositories.StockReductionRepository;
+import com.example.order_service.services.Order.OrderService;
+import com.example.order_service.services.Product.ProductServiceClient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// The scheduled reconciliation is pushed out so every test runs it by hand, and the /details calls aren't merged so they can be counted
+@SpringBootTest(properties = {"stock.reservation.enabled=true", "stock.reservation.reconcile-interval=3600000",
+		"product-service.details.coalescing.enabled=false"})
+class StockReservationServiceTests {
+
+	private static final int STOCK = 10;
+
+	@MockitoBean
+	private ProductServiceClient productServiceClient;
+
+	@Autowired
+	private StockReservationService stockReservationService;
+
+	@Autowired
+	private StockReservationLedger ledger;
+
+	@Autowired
+	private StockReductionRepository stockReductionRepository;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private OrderService orderService;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		stockReductionRepository.deleteAll();
+
+		when(productServiceClient.getProductDetails(anyList())).thenAnswer(invocation -> {
+			List<Long> productIds = invocation.getArgument(0);
+			return productIds.stream()
+					.map(productId -> new ProductDetailsDTO(productId, "Product " + productId, "", 10.0, STOCK))
+					.toArray(ProductDetailsDTO[]::new);
+		});
+	}
+
+	@Test
+	void rolledBackOrderReleasesItsHold() {
+		transactionTemplate.executeWithoutResult(status -> {
+			StockHold hold = reserve(101L, 4);
+			stockReservationService.recordReduction(hold, 1L);
+			assertEquals(STOCK - 4, ledger.available(101L));
+			status.setRollbackOnly();
+		});
+
+		assertEquals(STOCK, ledger.available(101L));
+		assertEquals(0, ledger.activeHolds());
+		assertEquals(0, stockReductionRepository.count());
+	}
+
+	@Test
+	void committedOrderIsReducedByReconcile() throws Exception {
+		transactionTemplate.executeWithoutResult(status -> stockReservationService.recordReduction(reserve(102L, 4), 1L));
+
+		List<StockReductionEntity> pending = stockReductionRepository.findAll();
+		assertEquals(1, pending.size());
+		assertEquals(StockReductionStatus.PENDING, pending.get(0).getStatus());
+		assertEquals(1L, pending.get(0).getOrderId());
+		assertEquals(STOCK - 4, ledger.available(102L));
+
+		stockReservationService.reconcile();
+
+		verify(productServiceClient).reduceStock(argThat(request -> request.getProducts().size() == 1
+				&& request.getProducts().get(0).getProductId() == 102L && request.getProducts().get(0).getQuantity() == 4));
+		assertEquals(0, stockReductionRepository.count());
+		assertEquals(STOCK - 4, ledger.available(102L));
+	}
+
+	@Test
+	void rejectedProductIsSplitFromTheBatch() throws Exception {
+		stockReductionRepository.save(new StockReductionEntity(1L, 103L, 2));
+		stockReductionRepository.save(new StockReductionEntity(2L, 104L, 3));
+		stockReductionRepository.save(new StockReductionEntity(3L, 103L, 1));
+
+		doThrow(HttpClientErrorException.create(HttpStatus.BAD_REQUEST, "Bad Request", null, "Not enough stock".getBytes(), null))
+				.when(productServiceClient).reduceStock(argThat(request -> containsProduct(request, 104L)));
+
+		stockReservationService.reconcile();
+
+		// The batch, then each product alone with its own key
+		ArgumentCaptor<ReduceStockRequest> requests = ArgumentCaptor.forClass(ReduceStockRequest.class);
+		verify(productServiceClient, times(3)).reduceStock(requests.capture());
+		assertEquals(3, requests.getAllValues().stream().map(ReduceStockRequest::getIdempotencyKey).distinct().count());
+		List<StockReductionEntity> left = stockReductionRepository.findAll();
+		assertEquals(1, left.size());
+		assertEquals(104L, left.get(0).getProductId());
+		assertEquals(2L, left.get(0).getOrderId());
+		assertEquals(StockReductionStatus.REJECTED, left.get(0).getStatus());
+
+		// Rejected rows aren't sent again
+		stockReservationService.reconcile();
+		verify(productServiceClient, times(3)).reduceStock(any());
+	}
+
+	@Test
+	void unansweredReductionIsSentAgainWithTheSameKey() throws Exception {
+		stockReductionRepository.save(new StockReductionEntity(1L, 105L, 2));
+		doThrow(new ProductServiceUnavailableException("Product service is unavailable, try again later."))
+				.doNothing()
+				.when(productServiceClient).reduceStock(any());
+
+		stockReservationService.reconcile();
+
+		List<StockReductionEntity> sent = stockReductionRepository.findAll();
+		assertEquals(1, sent.size());
+		assertEquals(StockReductionStatus.SENT, sent.get(0).getStatus());
+		assertNull(sent.get(0).getStatusDetail());
+
+		// Newer pending rows don't join the unanswered call, it goes again exactly as it was
+		stockReductionRepository.save(new StockReductionEntity(2L, 105L, 5));
+		stockReservationService.reconcile();
+
+		ArgumentCaptor<ReduceStockRequest> requests = ArgumentCaptor.forClass(ReduceStockRequest.class);
+		verify(productServiceClient, times(3)).reduceStock(requests.capture());
+		ReduceStockRequest first = requests.getAllValues().get(0);
+		ReduceStockRequest retry = requests.getAllValues().get(1);
+		ReduceStockRequest next = requests.getAllValues().get(2);
+		assertEquals(sent.get(0).getBatchKey(), first.getIdempotencyKey());
+		assertEquals(first.getIdempotencyKey(), retry.getIdempotencyKey());
+		assertEquals(2, retry.getProducts().get(0).getQuantity());
+		assertNotEquals(first.getIdempotencyKey(), next.getIdempotencyKey());
+		assertEquals(5, next.getProducts().get(0).getQuantity());
+		assertEquals(0, stockReductionRepository.count());
+	}
+
+	@Test
+	void loadedProductCountsTheReductionsLeftPending() {
+		// Left by a previous run of the service
+		stockReductionRepository.save(new StockReductionEntity(1L, 106L, 3));
+
+		transactionTemplate.executeWithoutResult(status -> stockReservationService.recordReduction(reserve(106L, 1), 2L));
+
+		assertEquals(STOCK - 3 - 1, ledger.available(106L));
+	}
+
+	@Test
+	void checkoutRequestsTheDetailsWhileReservingTheStock() throws Exception {
+		// Each call waits for the other one, they only finish quickly if both are in flight at the same time
+		CountDownLatch calls = new CountDownLatch(2);
+		ConcurrentLinkedQueue<Boolean> overlapped = new ConcurrentLinkedQueue<>();
+		when(productServiceClient.getProductDetails(anyList())).thenAnswer(invocation -> {
+			calls.countDown();
+			overlapped.add(calls.await(5, TimeUnit.SECONDS));
+			List<Long> productIds = invocation.getArgument(0);
+			return productIds.stream()
+					.map(productId -> new ProductDetailsDTO(productId, "Product " + productId, "", 10.0, STOCK))
+					.toArray(ProductDetailsDTO[]::new);
+		});
+
+		orderService.createNewOrder(new NewOrder("PENDING", List.of(new NewOrderItem(107L, 2, null))), "user@example.com", 1L);
+
+		assertEquals(2, overlapped.size());
+		assertFalse(overlapped.contains(false));
+		assertEquals(STOCK - 2, ledger.available(107L));
+		assertTrue(stockReductionRepository.findAll().stream().anyMatch(reduction -> reduction.getProductId() == 107L));
+	}
+
+	private StockHold reserve(Long productId, int quantity) {
+		try {
+			return stockReservationService.reserve(List.of(new NewOrderItem(productId, quantity, null)));
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static boolean containsProduct(ReduceStockRequest request, Long productId) {
+		return request != null && request.getProducts().stream().anyMatch(product -> product.getProductId().equals(productId));
+	}
+}